@@ -2,18 +2,30 @@ package com.example.senon;
 
 import android.content.Context;
 import android.hardware.Sensor;
-import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.os.Handler;
 import android.os.Looper;
 
 import com.example.senon.model.TestResult;
+import com.example.senon.utils.TestRunJournal;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Background service for testing all sensors automatically
@@ -21,21 +33,108 @@ import java.util.concurrent.TimeUnit;
 public class AutoSensorTester {
 
     private static final int TEST_DURATION_MS = 3000; // 3 seconds per sensor
-    private static final int SAMPLE_COLLECTION_TIMEOUT_MS = 5000; // 5 seconds timeout
+    private static final int MAX_QUEUED_RUNS = 4;
+    private static final long IDLE_THREAD_TIMEOUT_S = 30;
 
     private SensorManager sensorManager;
     private Handler mainHandler;
-    private List<TestResult> testResults;
-    private boolean isTesting = false;
+    private final ThreadPoolExecutor executor;
+    private volatile TestRun currentRun;
+    private volatile ResultCollector lastResults;
+    private TestRunJournal journal;
+    private int concurrency;
+    private final Set<TestStage> enabledStages = EnumSet.noneOf(TestStage.class);
+    private long deepTestDurationMs = StatisticsTestStage.DEFAULT_DURATION_MS;
+    private int ratePeriodUs = 0;
 
     public AutoSensorTester(Context context) {
         sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
         mainHandler = new Handler(Looper.getMainLooper());
-        testResults = new ArrayList<>();
+        // A single worker runs one test at a time; a cancelled run unwinds in
+        // milliseconds, so a restart only briefly queues behind it
+        executor = new ThreadPoolExecutor(1, 1, IDLE_THREAD_TIMEOUT_S, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED_RUNS), runnable -> new Thread(runnable, "AutoSensorTester"));
+        executor.allowCoreThreadTimeOut(true);
+        concurrency = PowerOptimizationManager.getRecommendedSensorConcurrency();
+    }
+
+    /**
+     * Sets how many sensors are registered at once. A value of 1 tests sensors
+     * strictly one after another.
+     *
+     * @param concurrency The number of sensors tested together
+     */
+    public void setConcurrency(int concurrency) {
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Enables or disables an optional stage that runs after a sensor passed its
+     * basic test
+     *
+     * @param stage   The stage
+     * @param enabled Whether the stage should run
+     */
+    public void setStageEnabled(TestStage stage, boolean enabled) {
+        if (enabled) {
+            enabledStages.add(stage);
+        } else {
+            enabledStages.remove(stage);
+        }
+    }
+
+    public boolean isStageEnabled(TestStage stage) {
+        return enabledStages.contains(stage);
+    }
+
+    /**
+     * Sets how long the deep statistics stage samples each sensor
+     *
+     * @param durationMs The sampling duration in milliseconds
+     */
+    public void setDeepTestDuration(long durationMs) {
+        this.deepTestDurationMs = Math.max(500, durationMs);
+    }
+
+    /**
+     * Sets the sampling period the rate verification stage requests. The period
+     * is clamped into each sensor's [getMinDelay, getMaxDelay] range.
+     *
+     * @param periodUs The period in microseconds, or 0 for each sensor's fastest rate
+     */
+    public void setRateVerificationPeriod(int periodUs) {
+        this.ratePeriodUs = Math.max(0, periodUs);
+    }
+
+    /**
+     * Sets the journal completed results are written to, so that a run killed
+     * with the process can be continued with {@link #resumeAllSensors}
+     *
+     * @param journal The journal, or null to disable journaling
+     */
+    public void setJournal(TestRunJournal journal) {
+        this.journal = journal;
     }
 
     public void testAllSensors(List<Sensor> sensors, TestCallback callback) {
-        if (isTesting) {
+        startRun(sensors, callback, false);
+    }
+
+    /**
+     * Tests all sensors, skipping the ones whose results were journaled by an
+     * earlier run of the same sensor list that did not complete. Without such a
+     * journal this is the same as {@link #testAllSensors}.
+     */
+    public void resumeAllSensors(List<Sensor> sensors, TestCallback callback) {
+        startRun(sensors, callback, true);
+    }
+
+    private void startRun(List<Sensor> sensors, TestCallback callback, boolean resume) {
+        if (isTesting()) {
             callback.onTestError("Testing already in progress");
             return;
         }
@@ -45,179 +144,353 @@ public class AutoSensorTester {
             return;
         }
 
-        isTesting = true;
-        testResults.clear();
+        TestRun run = new TestRun(new ArrayList<>(sensors), createStages(), callback, journal, resume);
+        currentRun = run;
+        lastResults = run.results;
+        try {
+            run.future = executor.submit(() -> runTests(run));
+        } catch (RejectedExecutionException e) {
+            currentRun = null;
+            callback.onTestError("Testing already in progress");
+        }
+    }
+
+    private void runTests(TestRun run) {
+        List<Sensor> sensors = run.sensors;
+        post(run, () -> run.callback.onTestStarted(sensors.size()));
 
-        // Start testing in background thread
-        new Thread(() -> {
+        // Wait for a run torn down with an earlier screen to let go of the journal
+        TestRunJournal ownedJournal = run.journal;
+        if (ownedJournal != null) {
             try {
-                mainHandler.post(() -> callback.onTestStarted(sensors.size()));
+                ownedJournal.acquire();
+            } catch (InterruptedException e) {
+                // Cancelled before the journal was ours; leave it to its owner
+                return;
+            }
+        }
 
-                for (int i = 0; i < sensors.size(); i++) {
-                    if (!isTesting) break; // Allow cancellation
+        try {
+            ResultSink sink = (index, result) -> {
+                final int tested = run.results.add(index, result);
+                appendToJournal(run, index, result);
+                post(run, () -> run.callback.onSensorTested(result, tested, sensors.size()));
+            };
+
+            // Report journaled results first and only test the remaining sensors
+            Map<Integer, TestResult> restored = openJournal(run);
+            List<Integer> remaining = new ArrayList<>();
+            for (int i = 0; i < sensors.size(); i++) {
+                TestResult result = restored.get(i);
+                if (result != null) {
+                    final int tested = run.results.add(i, result);
+                    post(run, () -> run.callback.onSensorTested(result, tested, sensors.size()));
+                } else {
+                    remaining.add(i);
+                }
+            }
 
-                    Sensor sensor = sensors.get(i);
-                    TestResult result = testSensor(sensor);
-                    testResults.add(result);
+            // Sensors are tested in groups so that a slow sensor only holds up
+            // the others in its group instead of the whole run
+            for (int groupStart = 0; groupStart < remaining.size(); groupStart += concurrency) {
+                int groupEnd = Math.min(groupStart + concurrency, remaining.size());
+                testSensorGroup(sensors, remaining.subList(groupStart, groupEnd), run.stages, sink);
+            }
 
-                    final int progress = i + 1;
-                    mainHandler.post(() -> callback.onSensorTested(result, progress, sensors.size()));
+            // Report results in the original sensor order rather than completion order
+            List<TestResult> completedResults = run.results.snapshot();
+            discardJournal(run);
+            finish(run, () -> run.callback.onTestCompleted(completedResults));
 
-                    // Add a longer delay between tests to avoid overwhelming the sensor system
-                    // This is especially important for Xiaomi devices
-                    try {
-                        Thread.sleep(500); // Increased from 100ms to 500ms
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-                }
+        } catch (InterruptedException e) {
+            // Cancelled; every listener was released while unwinding. A run torn
+            // down with its screen keeps its journal so it can be resumed.
+            if (run.keepJournal) {
+                closeJournal(run);
+            } else {
+                discardJournal(run);
+            }
+        } catch (Exception e) {
+            discardJournal(run);
+            finish(run, () -> run.callback.onTestError("Testing failed: " + e.getMessage()));
+        } finally {
+            if (ownedJournal != null) {
+                ownedJournal.release();
+            }
+        }
+    }
+
+    /**
+     * Opens the run's journal, resuming it when requested
+     *
+     * @return Results restored from the journal, by sensor index
+     */
+    private Map<Integer, TestResult> openJournal(TestRun run) {
+        Map<Integer, TestResult> restored = new HashMap<>();
+        if (run.journal == null) {
+            return restored;
+        }
+        try {
+            TestRunJournal.Checkpoint checkpoint = run.resume ? run.journal.load(run.sensors) : null;
+            if (checkpoint != null && !checkpoint.isEmpty()) {
+                run.journal.resume(checkpoint);
+                restored.putAll(checkpoint.getResults());
+                android.util.Log.d("AutoSensorTester", "Resuming run with " + restored.size() + " journaled results");
+            } else {
+                run.journal.begin(run.sensors);
+            }
+        } catch (IOException e) {
+            // Journaling is best effort; the run itself goes on without it
+            android.util.Log.w("AutoSensorTester", "Journal unavailable: " + e.getMessage());
+            run.journal = null;
+        }
+        return restored;
+    }
+
+    private void appendToJournal(TestRun run, int index, TestResult result) {
+        if (run.journal == null) {
+            return;
+        }
+        try {
+            run.journal.append(index, result);
+        } catch (IOException e) {
+            android.util.Log.w("AutoSensorTester", "Journal write failed: " + e.getMessage());
+            run.journal.close();
+            run.journal = null;
+        }
+    }
+
+    private void closeJournal(TestRun run) {
+        if (run.journal != null) {
+            run.journal.close();
+            run.journal = null;
+        }
+    }
 
-                isTesting = false;
-                mainHandler.post(() -> callback.onTestCompleted(new ArrayList<>(testResults)));
+    private void discardJournal(TestRun run) {
+        if (run.journal != null) {
+            run.journal.discard();
+            run.journal = null;
+        }
+    }
 
-            } catch (Exception e) {
-                isTesting = false;
-                mainHandler.post(() -> callback.onTestError("Testing failed: " + e.getMessage()));
+    /**
+     * Delivers a callback on the main thread unless the run was cancelled or
+     * replaced in the meantime
+     */
+    private void post(TestRun run, Runnable action) {
+        mainHandler.post(() -> {
+            if (currentRun == run) {
+                action.run();
             }
-        }).start();
+        });
     }
 
-    private TestResult testSensor(Sensor sensor) {
-        long startTime = System.currentTimeMillis();
+    private void finish(TestRun run, Runnable action) {
+        mainHandler.post(() -> {
+            if (currentRun == run) {
+                currentRun = null;
+                action.run();
+            }
+        });
+    }
+
+    private List<SensorTestStage> createStages() {
+        List<SensorTestStage> stages = new ArrayList<>();
+        for (TestStage stage : enabledStages) {
+            switch (stage) {
+                case STATISTICS:
+                    stages.add(new StatisticsTestStage(deepTestDurationMs));
+                    break;
+                case BATCHING:
+                    stages.add(new BatchingTestStage(BatchingTestStage.DEFAULT_MAX_FILL_MS));
+                    break;
+                case DIRECT_CHANNEL:
+                    stages.add(new DirectChannelTestStage(DirectChannelTestStage.DEFAULT_DURATION_MS));
+                    break;
+                case RATE:
+                    stages.add(new RateVerificationStage(RateVerificationStage.DEFAULT_DURATION_MS, ratePeriodUs));
+                    break;
+            }
+        }
+        return stages;
+    }
+
+    /**
+     * Starts a test strategy for every sensor at the given indexes at once and reports
+     * each sensor as soon as its strategy reaches a verdict. Sensors without a
+     * verdict when their own timeout expires are reported with the strategy's
+     * timeout result. Passed sensors that enabled stages apply to are held back
+     * and reported once those stages have run for the whole group.
+     *
+     * @throws InterruptedException when the run is cancelled, after every
+     *                              sensor of the group has been released
+     */
+    private void testSensorGroup(List<Sensor> sensors, List<Integer> indexes, List<SensorTestStage> stages,
+                                 ResultSink sink) throws InterruptedException {
+        BlockingQueue<SensorTestStrategy> verdicts = new LinkedBlockingQueue<>();
+        List<SensorTestStrategy> pending = new ArrayList<>();
+        List<Integer> stagedIndexes = new ArrayList<>();
+        List<TestResult.Builder> stagedResults = new ArrayList<>();
+        ResultSink groupSink = (index, result) -> {
+            if (result.isWorking() && anyStageApplies(stages, result.getSensor())) {
+                stagedIndexes.add(index);
+                stagedResults.add(result.buildUpon());
+            } else {
+                sink.onResult(index, result);
+            }
+        };
+
+        for (int i : indexes) {
+            Sensor sensor = sensors.get(i);
 
-        try {
             // Check if sensor is null or not available
             if (sensor == null) {
-                return new TestResult(
-                        sensor,
-                        false,
-                        "Sensor is null",
-                        null,
-                        System.currentTimeMillis() - startTime,
-                        0
-                );
+                groupSink.onResult(i, new TestResult(sensor, false, "Sensor is null", null, 0, 0));
+                continue;
             }
 
             // Check if sensor manager is available
             if (sensorManager == null) {
-                return new TestResult(
-                        sensor,
-                        false,
-                        "SensorManager is not available",
-                        null,
-                        System.currentTimeMillis() - startTime,
-                        0
-                );
+                groupSink.onResult(i, new TestResult(sensor, false, "SensorManager is not available", null, 0, 0));
+                continue;
             }
 
-            SensorTestListener listener = new SensorTestListener();
-
-            // Try multiple registration attempts with different delays
-            boolean registered = false;
-            String lastError = "";
-
-            // First attempt with SENSOR_DELAY_NORMAL
-            registered = sensorManager.registerListener(
-                    listener,
-                    sensor,
-                    SensorManager.SENSOR_DELAY_NORMAL
-            );
-
-            if (!registered) {
-                // Second attempt with SENSOR_DELAY_UI (faster)
-                registered = sensorManager.registerListener(
-                        listener,
-                        sensor,
-                        SensorManager.SENSOR_DELAY_UI
-                );
-                lastError = "Failed with NORMAL delay, ";
+            SensorTestStrategy strategy = SensorTestStrategy.forSensor(i, sensor);
+            TestResult registrationFailure = strategy.start(sensorManager, verdicts);
+            if (registrationFailure != null) {
+                groupSink.onResult(i, registrationFailure);
+            } else {
+                pending.add(strategy);
             }
+        }
 
-            if (!registered) {
-                // Third attempt with SENSOR_DELAY_GAME (even faster)
-                registered = sensorManager.registerListener(
-                        listener,
-                        sensor,
-                        SensorManager.SENSOR_DELAY_GAME
-                );
-                lastError += "Failed with UI delay, ";
+        try {
+            while (!pending.isEmpty()) {
+                long remaining = getEarliestDeadline(pending) - System.currentTimeMillis();
+                SensorTestStrategy strategy = remaining > 0
+                        ? verdicts.poll(remaining, TimeUnit.MILLISECONDS)
+                        : verdicts.poll();
+
+                if (strategy != null) {
+                    // A late verdict for a strategy that already timed out is ignored
+                    if (pending.remove(strategy)) {
+                        strategy.stop(sensorManager);
+                        groupSink.onResult(strategy.index, strategy.buildVerdictResult());
+                    }
+                } else {
+                    reportExpired(pending, groupSink);
+                }
             }
 
-            if (!registered) {
-                return new TestResult(
-                        sensor,
-                        false,
-                        lastError + "Failed to register sensor listener - sensor may not be available or accessible",
-                        null,
-                        System.currentTimeMillis() - startTime,
-                        0
-                );
+            for (SensorTestStage stage : stages) {
+                runStage(stage, stagedResults);
             }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            for (int i = 0; i < stagedResults.size(); i++) {
+                sink.onResult(stagedIndexes.get(i), stagedResults.get(i).build());
+            }
+        } finally {
+            // Always unregister, even if no verdict was reached
+            for (SensorTestStrategy strategy : pending) {
+                strategy.stop(sensorManager);
+            }
+        }
+    }
 
-            // Wait for data or timeout
-            boolean hasData = listener.waitForData(SAMPLE_COLLECTION_TIMEOUT_MS);
-
-            // Always unregister listener, even if no data received
-            try {
-                sensorManager.unregisterListener(listener);
-            } catch (Exception unregisterException) {
-                // Log but don't fail the test for unregister issues
+    private boolean anyStageApplies(List<SensorTestStage> stages, Sensor sensor) {
+        for (SensorTestStage stage : stages) {
+            if (stage.appliesTo(sensor)) {
+                return true;
             }
+        }
+        return false;
+    }
 
-            long testDuration = System.currentTimeMillis() - startTime;
-
-            if (hasData) {
-                return new TestResult(
-                        sensor,
-                        true,
-                        null,
-                        listener.getSampleData(),
-                        testDuration,
-                        listener.getAccuracy()
-                );
-            } else {
-                return new TestResult(
-                        sensor,
-                        false,
-                        "Sensor registered successfully but no data received within " + (SAMPLE_COLLECTION_TIMEOUT_MS / 1000) + " seconds",
-                        null,
-                        testDuration,
-                        0
-                );
+    private void runStage(SensorTestStage stage, List<TestResult.Builder> results) throws InterruptedException {
+        List<TestResult.Builder> applicable = new ArrayList<>();
+        for (TestResult.Builder result : results) {
+            if (stage.appliesTo(result.getSensor())) {
+                applicable.add(result);
             }
+        }
+        if (!applicable.isEmpty()) {
+            stage.run(sensorManager, applicable);
+        }
+    }
 
-        } catch (SecurityException e) {
-            return new TestResult(
-                    sensor,
-                    false,
-                    "Permission denied: " + e.getMessage() + " - Check sensor permissions",
-                    null,
-                    System.currentTimeMillis() - startTime,
-                    0
-            );
-        } catch (Exception e) {
-            return new TestResult(
-                    sensor,
-                    false,
-                    "Test error: " + e.getMessage(),
-                    null,
-                    System.currentTimeMillis() - startTime,
-                    0
-            );
+    private long getEarliestDeadline(List<SensorTestStrategy> pending) {
+        long earliest = Long.MAX_VALUE;
+        for (SensorTestStrategy strategy : pending) {
+            earliest = Math.min(earliest, strategy.getDeadline());
+        }
+        return earliest;
+    }
+
+    private void reportExpired(List<SensorTestStrategy> pending, ResultSink sink) {
+        long now = System.currentTimeMillis();
+        Iterator<SensorTestStrategy> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            SensorTestStrategy strategy = iterator.next();
+            if (strategy.getDeadline() <= now) {
+                strategy.stop(sensorManager);
+                iterator.remove();
+                sink.onResult(strategy.index, strategy.buildResultOnTimeout());
+            }
         }
     }
 
+    /**
+     * Cancels the current run. The worker is interrupted, which wakes it from
+     * any wait and unregisters its listeners; no further callbacks are
+     * delivered for the cancelled run.
+     */
     public void cancelTesting() {
-        isTesting = false;
+        TestRun run = currentRun;
+        if (run == null) {
+            return;
+        }
+        currentRun = null;
+        if (run.future != null) {
+            run.future.cancel(true);
+        }
+        executor.purge();
+    }
+
+    /**
+     * Cancels any run and stops the worker thread. Unlike
+     * {@link #cancelTesting}, the run's journal is kept, so a screen recreated
+     * after a configuration change can resume it. The tester cannot be used
+     * afterwards.
+     */
+    public void shutdown() {
+        TestRun run = currentRun;
+        if (run != null) {
+            run.keepJournal = true;
+        }
+        cancelTesting();
+        executor.shutdownNow();
     }
 
     public boolean isTesting() {
-        return isTesting;
+        return currentRun != null;
     }
 
     public List<TestResult> getLastResults() {
-        return new ArrayList<>(testResults);
+        ResultCollector results = lastResults;
+        return results != null ? results.snapshot() : new ArrayList<>();
+    }
+
+    /**
+     * Optional stages that run after a sensor passed its basic test
+     */
+    public enum TestStage {
+        STATISTICS, // Deep multi-sample statistics at SENSOR_DELAY_FASTEST
+        RATE, // Delivered rate and jitter at a requested sampling period
+        BATCHING, // Hardware FIFO fill, flush and burst delivery
+        DIRECT_CHANNEL // High-rate capture through a shared memory direct channel
     }
 
     public interface TestCallback {
@@ -230,41 +503,62 @@ public class AutoSensorTester {
         void onTestError(String error);
     }
 
-    private static class SensorTestListener implements SensorEventListener {
-        private float[] sampleData;
-        private int accuracy = 0;
-        private CountDownLatch dataLatch = new CountDownLatch(1);
-        private boolean hasReceivedData = false;
+    private interface ResultSink {
+        void onResult(int index, TestResult result);
+    }
 
-        @Override
-        public void onSensorChanged(SensorEvent event) {
-            if (!hasReceivedData) {
-                sampleData = event.values.clone();
-                hasReceivedData = true;
-                dataLatch.countDown();
-            }
+    /**
+     * State of one testAllSensors call
+     */
+    private static class TestRun {
+        final List<Sensor> sensors;
+        final List<SensorTestStage> stages;
+        final TestCallback callback;
+        final ResultCollector results;
+        final boolean resume;
+        TestRunJournal journal; // Only used on the worker thread
+        volatile Future<?> future;
+        volatile boolean keepJournal; // Set when the run is torn down rather than cancelled
+
+        TestRun(List<Sensor> sensors, List<SensorTestStage> stages, TestCallback callback,
+                TestRunJournal journal, boolean resume) {
+            this.sensors = sensors;
+            this.stages = stages;
+            this.callback = callback;
+            this.results = new ResultCollector(sensors.size());
+            this.journal = journal;
+            this.resume = resume;
         }
+    }
 
-        @Override
-        public void onAccuracyChanged(Sensor sensor, int accuracy) {
-            this.accuracy = accuracy;
-        }
+    /**
+     * Thread-safe store for results, kept in sensor order
+     */
+    private static class ResultCollector {
+        private final AtomicReferenceArray<TestResult> results;
+        private final AtomicInteger completed = new AtomicInteger();
 
-        public boolean waitForData(long timeoutMs) {
-            try {
-                return dataLatch.await(timeoutMs, TimeUnit.MILLISECONDS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return false;
-            }
+        ResultCollector(int size) {
+            results = new AtomicReferenceArray<>(size);
         }
 
-        public float[] getSampleData() {
-            return sampleData;
+        /**
+         * @return The number of results collected so far
+         */
+        int add(int index, TestResult result) {
+            results.set(index, result);
+            return completed.incrementAndGet();
         }
 
-        public int getAccuracy() {
-            return accuracy;
+        List<TestResult> snapshot() {
+            List<TestResult> snapshot = new ArrayList<>();
+            for (int i = 0; i < results.length(); i++) {
+                TestResult result = results.get(i);
+                if (result != null) {
+                    snapshot.add(result);
+                }
+            }
+            return snapshot;
         }
     }
-}
\ No newline at end of file
+}
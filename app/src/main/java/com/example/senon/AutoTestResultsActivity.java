@@ -91,23 +91,28 @@ public class AutoTestResultsActivity extends AppCompatActivity {
         // Calculate statistics
         int totalSensors = testResults.size();
         int workingSensors = 0;
+        int armedSensors = 0;
         int failedSensors = 0;
 
         for (TestResult result : testResults) {
-            if (result.isWorking()) {
-                workingSensors++;
-            } else {
+            if (!result.isWorking()) {
                 failedSensors++;
+            } else if (result.isArmedOnly()) {
+                armedSensors++;
+            } else {
+                workingSensors++;
             }
         }
 
         // Update summary UI
         binding.textViewTotalSensors.setText(String.valueOf(totalSensors));
         binding.textViewWorkingSensors.setText(String.valueOf(workingSensors));
+        binding.textViewArmedSensors.setText(String.valueOf(armedSensors));
         binding.textViewFailedSensors.setText(String.valueOf(failedSensors));
 
-        // Calculate success rate
-        double successRate = totalSensors > 0 ? (workingSensors * 100.0 / totalSensors) : 0;
+        // Calculate success rate; armed sensors never delivered data, so they are not judged
+        int judgedSensors = workingSensors + failedSensors;
+        double successRate = judgedSensors > 0 ? (workingSensors * 100.0 / judgedSensors) : 0;
         binding.textViewSuccessRate.setText(String.format(Locale.getDefault(), "%.1f%%", successRate));
 
         // Format test duration
@@ -148,16 +153,25 @@ public class AutoTestResultsActivity extends AppCompatActivity {
 
         // Summary
         int workingSensors = 0;
+        int armedSensors = 0;
         for (TestResult result : testResults) {
-            if (result.isWorking())
-                workingSensors++;
+            if (result.isWorking()) {
+                if (result.isArmedOnly()) {
+                    armedSensors++;
+                } else {
+                    workingSensors++;
+                }
+            }
         }
+        int failedSensors = testResults.size() - workingSensors - armedSensors;
+        int judgedSensors = workingSensors + failedSensors;
 
         report.append(String.format("Total Sensors: %d\n", testResults.size()));
         report.append(String.format("Working: %d\n", workingSensors));
-        report.append(String.format("Failed: %d\n", testResults.size() - workingSensors));
+        report.append(String.format("Armed (not triggered): %d\n", armedSensors));
+        report.append(String.format("Failed: %d\n", failedSensors));
         report.append(String.format("Success Rate: %.1f%%\n",
-                testResults.size() > 0 ? (workingSensors * 100.0 / testResults.size()) : 0));
+                judgedSensors > 0 ? (workingSensors * 100.0 / judgedSensors) : 0));
         report.append(String.format("Test Duration: %s\n\n", formatDuration(totalTestDuration)));
 
         // Individual results
@@ -167,7 +181,7 @@ public class AutoTestResultsActivity extends AppCompatActivity {
         for (TestResult result : testResults) {
             report.append(String.format("%s: %s\n",
                     result.getSensorName(),
-                    result.isWorking() ? "PASS" : "FAIL"));
+                    result.getVerdict()));
 
             if (!result.isWorking() && result.getErrorMessage() != null) {
                 report.append(String.format("  Error: %s\n", result.getErrorMessage()));
@@ -177,6 +191,32 @@ public class AutoTestResultsActivity extends AppCompatActivity {
                 report.append(String.format("  Sample: %s\n", result.getSampleDataString()));
             }
 
+            if (result.hasStatistics()) {
+                report.append("  Statistics: ")
+                        .append(result.getStatistics().getSummaryString().replace("\n", "\n    "))
+                        .append("\n");
+            }
+
+            if (result.hasBatchingStatistics()) {
+                report.append("  Batching: ")
+                        .append(result.getBatchingStatistics().getSummaryString().replace("\n", "\n    "))
+                        .append("\n");
+            }
+
+            if (result.hasDirectChannelStatistics()) {
+                report.append("  ").append(result.getDirectChannelStatistics().getSummaryString()).append("\n");
+            }
+
+            if (result.hasLatency()) {
+                report.append("  ").append(result.getLatency().getSummaryString()).append("\n");
+            }
+
+            if (result.hasRateStatistics()) {
+                report.append("  Rate: ")
+                        .append(result.getRateStatistics().getSummaryString().replace("\n", "\n    "))
+                        .append("\n");
+            }
+
             report.append("\n");
         }
 
@@ -0,0 +1,172 @@
+package com.example.senon;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener2;
+import android.hardware.SensorManager;
+import android.os.SystemClock;
+
+import com.example.senon.model.BatchingStatistics;
+import com.example.senon.model.TestResult;
+import com.example.senon.utils.SensorDispatcher;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test stage for the hardware FIFO batching path. Each sensor is registered
+ * with a report latency long enough to fill its FIFO, then flushed; the stage
+ * measures the bursts the HAL delivers, the flush burst's throughput and the
+ * time until onFlushCompleted, and compares the batch size with the declared
+ * FIFO capacity. Only continuous sensors produce a predictable number of
+ * events while filling, so the capacity is not judged for on-change and
+ * special-trigger sensors.
+ *
+ * Sensors sharing a FIFO would evict each other's events, so unlike other
+ * stages the sensors are tested one after another.
+ */
+class BatchingTestStage extends SensorTestStage {
+
+    static final long DEFAULT_MAX_FILL_MS = 5000;
+    private static final int FALLBACK_PERIOD_US = 20000;
+    private static final long FLUSH_TIMEOUT_MS = 3000;
+    private static final int MIN_BURST_EVENTS = 2;
+
+    private final long maxFillMs;
+
+    /**
+     * @param maxFillMs Upper bound on how long to let each FIFO fill
+     */
+    BatchingTestStage(long maxFillMs) {
+        this.maxFillMs = maxFillMs;
+    }
+
+    @Override
+    boolean appliesTo(Sensor sensor) {
+        return sensor.getFifoMaxEventCount() > 0 && sensor.getReportingMode() != Sensor.REPORTING_MODE_ONE_SHOT;
+    }
+
+    @Override
+    void run(SensorManager sensorManager, List<TestResult.Builder> results) throws InterruptedException {
+        for (TestResult.Builder result : results) {
+            long startTime = System.currentTimeMillis();
+            result.setBatchingStatistics(testBatching(sensorManager, result.getSensor()));
+            result.setTestDuration(result.getTestDuration() + System.currentTimeMillis() - startTime);
+        }
+    }
+
+    private BatchingStatistics testBatching(SensorManager sensorManager, Sensor sensor) throws InterruptedException {
+        int periodUs = sensor.getMinDelay() > 0 ? sensor.getMinDelay() : FALLBACK_PERIOD_US;
+        int capacity = sensor.getFifoReservedEventCount() > 0
+                ? sensor.getFifoReservedEventCount()
+                : sensor.getFifoMaxEventCount();
+
+        // Long enough to fill the FIFO, bounded so one sensor cannot stall the run
+        long fillMs = Math.min(maxFillMs, (long) capacity * periodUs / 1000 + 100);
+        int expectedBatchSize = (int) Math.min(capacity, fillMs * 1000 / periodUs);
+        // Twice the fill time so the HAL has no reason to report before the flush
+        int maxReportLatencyUs = (int) Math.min(Integer.MAX_VALUE, fillMs * 2000);
+
+        BurstCollector collector = new BurstCollector(periodUs);
+        if (!sensorManager.registerListener(collector, sensor, periodUs, maxReportLatencyUs,
+                SensorDispatcher.getHandler())) {
+            return null;
+        }
+
+        try {
+            Thread.sleep(fillMs);
+            collector.startFlush();
+            if (sensorManager.flush(collector)) {
+                collector.awaitFlush(FLUSH_TIMEOUT_MS);
+            }
+        } finally {
+            sensorManager.unregisterListener(collector);
+        }
+
+        return collector.buildStatistics(sensor, periodUs, maxReportLatencyUs, expectedBatchSize);
+    }
+
+    /**
+     * Groups delivered events into bursts by their arrival time. Events of one
+     * batch arrive back to back, far closer together than the sampling period.
+     */
+    private static class BurstCollector implements SensorEventListener2 {
+        private final long burstGapNs;
+        private final CountDownLatch flushLatch = new CountDownLatch(1);
+        private long lastArrivalNs = -1;
+        private int currentBurst;
+        private int burstCount;
+        private int largestBurst;
+        private long flushStartNs = -1;
+        private long flushCompletedNs = -1;
+        private int flushedEvents;
+        private long firstFlushedNs = -1;
+        private long lastFlushedNs = -1;
+
+        BurstCollector(int periodUs) {
+            burstGapNs = periodUs * 1000L / 4;
+        }
+
+        @Override
+        public synchronized void onSensorChanged(SensorEvent event) {
+            long arrivalNs = SystemClock.elapsedRealtimeNanos();
+            if (lastArrivalNs >= 0 && arrivalNs - lastArrivalNs <= burstGapNs) {
+                currentBurst++;
+            } else {
+                endBurst();
+                currentBurst = 1;
+            }
+            lastArrivalNs = arrivalNs;
+
+            if (flushStartNs >= 0 && flushCompletedNs < 0) {
+                if (firstFlushedNs < 0) firstFlushedNs = arrivalNs;
+                lastFlushedNs = arrivalNs;
+                flushedEvents++;
+            }
+        }
+
+        @Override
+        public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        }
+
+        @Override
+        public synchronized void onFlushCompleted(Sensor sensor) {
+            if (flushStartNs >= 0 && flushCompletedNs < 0) {
+                flushCompletedNs = SystemClock.elapsedRealtimeNanos();
+                flushLatch.countDown();
+            }
+        }
+
+        synchronized void startFlush() {
+            flushStartNs = SystemClock.elapsedRealtimeNanos();
+        }
+
+        void awaitFlush(long timeoutMs) throws InterruptedException {
+            flushLatch.await(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        private void endBurst() {
+            if (currentBurst >= MIN_BURST_EVENTS) {
+                burstCount++;
+                largestBurst = Math.max(largestBurst, currentBurst);
+            }
+            currentBurst = 0;
+        }
+
+        synchronized BatchingStatistics buildStatistics(Sensor sensor, int periodUs, int maxReportLatencyUs,
+                                                        int expectedBatchSize) {
+            endBurst();
+            long flushSpanNs = lastFlushedNs - firstFlushedNs;
+            double flushThroughputHz = flushedEvents > 1 && flushSpanNs > 0
+                    ? (flushedEvents - 1) * 1e9 / flushSpanNs
+                    : 0;
+            long flushLatencyUs = flushCompletedNs >= 0 ? (flushCompletedNs - flushStartNs) / 1000 : -1;
+
+            return new BatchingStatistics(sensor.getFifoReservedEventCount(), sensor.getFifoMaxEventCount(),
+                    periodUs, maxReportLatencyUs, expectedBatchSize, burstCount, largestBurst, flushedEvents,
+                    flushThroughputHz, flushLatencyUs,
+                    sensor.getReportingMode() != Sensor.REPORTING_MODE_CONTINUOUS);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.senon;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+
+import com.example.senon.model.TestResult;
+
+/**
+ * Test strategy for continuous sensors (accelerometer, gyroscope, ...).
+ * The sensor passes on its first event. Most sensors deliver it quickly, as
+ * the verdict is reached on arrival, but slow HALs powering several sensors
+ * up at once can take seconds; the timeout therefore allows a generous
+ * first event margin plus a few periods at the slowest rate the sensor
+ * declares.
+ */
+class ContinuousTestStrategy extends SensorTestStrategy implements SensorEventListener {
+
+    private static final long REQUESTED_PERIOD_US = 200000; // SENSOR_DELAY_NORMAL
+    private static final long FIRST_EVENT_MARGIN_MS = 5000; // Time allowed for the HAL to power the sensor up
+    private static final long MAX_TIMEOUT_MS = 10000;
+
+    private volatile float[] sampleData;
+    private volatile int accuracy = 0;
+
+    ContinuousTestStrategy(int index, Sensor sensor) {
+        super(index, sensor);
+    }
+
+    @Override
+    protected String register(SensorManager sensorManager) {
+        return registerWithFallback(sensorManager, this);
+    }
+
+    @Override
+    protected void unregister(SensorManager sensorManager) {
+        sensorManager.unregisterListener(this);
+    }
+
+    @Override
+    protected long getTimeoutMs() {
+        // Conservatively the longer of the requested period and the declared max delay
+        long periodUs = Math.max(REQUESTED_PERIOD_US, sensor.getMaxDelay());
+        return Math.min(MAX_TIMEOUT_MS, FIRST_EVENT_MARGIN_MS + 3 * periodUs / 1000);
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        recordLatency(event.timestamp);
+        if (sampleData == null) {
+            sampleData = event.values.clone();
+            reportVerdict();
+        }
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        this.accuracy = accuracy;
+    }
+
+    @Override
+    TestResult buildResult() {
+        return new TestResult(sensor, true, null, sampleData, getElapsedTime(), accuracy);
+    }
+
+    @Override
+    TestResult buildTimeoutResult() {
+        return createFailedResult("Sensor registered successfully but no data received within "
+                + getTimeoutMs() + "ms");
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.senon;
+
+import android.hardware.Sensor;
+import android.hardware.SensorDirectChannel;
+import android.hardware.SensorManager;
+
+import com.example.senon.model.DirectChannelStatistics;
+import com.example.senon.model.TestResult;
+import com.example.senon.utils.DirectChannelCapture;
+import com.example.senon.utils.DirectReportParser;
+import com.example.senon.utils.RingDirectReportParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test stage that captures sensors supporting direct report channels at their
+ * fastest direct rate, up to RATE_VERY_FAST, and reports the delivered sample
+ * count and rate and any records lost to ring overruns.
+ */
+class DirectChannelTestStage extends SensorTestStage {
+
+    static final long DEFAULT_DURATION_MS = 2000;
+    private static final long POLL_INTERVAL_MS = 5;
+    // Holds well over one poll interval at RATE_VERY_FAST (up to ~1.8 kHz)
+    private static final int RING_RECORDS = 512;
+
+    private final long durationMs;
+
+    DirectChannelTestStage(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    @Override
+    boolean appliesTo(Sensor sensor) {
+        return DirectChannelCapture.isSupported(sensor);
+    }
+
+    @Override
+    void run(SensorManager sensorManager, List<TestResult.Builder> results) throws InterruptedException {
+        List<DirectChannelCapture> captures = new ArrayList<>();
+        List<SampleCounter> counters = new ArrayList<>();
+        long startTime = System.currentTimeMillis();
+
+        try {
+            for (TestResult.Builder result : results) {
+                DirectChannelCapture capture = new DirectChannelCapture(sensorManager, new RingDirectReportParser(),
+                        RING_RECORDS);
+                try {
+                    capture.start(result.getSensor(), SensorDirectChannel.RATE_VERY_FAST);
+                } catch (IOException | RuntimeException e) {
+                    android.util.Log.w("DirectChannelTestStage", "Direct channel failed for "
+                            + result.getSensor().getName() + ": " + e.getMessage());
+                    capture.close();
+                    capture = null;
+                }
+                captures.add(capture);
+                counters.add(new SampleCounter());
+            }
+
+            // Channels have no callbacks; drain each ring periodically
+            long deadline = startTime + durationMs;
+            while (System.currentTimeMillis() < deadline) {
+                Thread.sleep(POLL_INTERVAL_MS);
+                for (int i = 0; i < captures.size(); i++) {
+                    DirectChannelCapture capture = captures.get(i);
+                    if (capture == null) {
+                        continue;
+                    }
+                    try {
+                        capture.poll(counters.get(i));
+                    } catch (IOException e) {
+                        android.util.Log.w("DirectChannelTestStage", "Direct channel read failed for "
+                                + results.get(i).getSensor().getName() + ": " + e.getMessage());
+                        capture.close();
+                        captures.set(i, null);
+                    }
+                }
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+                DirectChannelCapture capture = captures.get(i);
+                if (capture != null) {
+                    SampleCounter counter = counters.get(i);
+                    results.get(i).setDirectChannelStatistics(new DirectChannelStatistics(capture.getRateLevel(),
+                            counter.count, capture.getDroppedCount(), counter.lastTimestampNs - counter.firstTimestampNs));
+                }
+            }
+        } finally {
+            for (DirectChannelCapture capture : captures) {
+                if (capture != null) {
+                    capture.close();
+                }
+            }
+        }
+
+        long elapsed = System.currentTimeMillis() - startTime;
+        for (TestResult.Builder result : results) {
+            result.setTestDuration(result.getTestDuration() + elapsed);
+        }
+    }
+
+    private static class SampleCounter implements DirectReportParser.SampleSink {
+        long count;
+        long firstTimestampNs;
+        long lastTimestampNs;
+
+        @Override
+        public void onSample(int reportToken, int sensorType, long timestampNs, float[] values) {
+            if (count == 0) {
+                firstTimestampNs = timestampNs;
+            }
+            lastTimestampNs = timestampNs;
+            count++;
+        }
+    }
+}
@@ -1,14 +1,13 @@
 package com.example.senon;
 
 import android.Manifest;
+import android.app.AlertDialog;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothManager;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.hardware.Sensor;
-import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.hardware.camera2.CameraManager;
 import android.media.AudioManager;
@@ -19,9 +18,11 @@ import android.nfc.NfcAdapter;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Trace;
 import android.os.Vibrator;
 import android.os.VibratorManager;
 import android.util.DisplayMetrics;
+import android.view.Choreographer;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.MotionEvent;
@@ -33,23 +34,29 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.example.senon.adapter.SensorAdapter;
 import com.example.senon.adapter.SensorViewHolder;
 import com.example.senon.databinding.ActivityMainBinding;
+import com.example.senon.model.DiagnosticsReport;
 import com.example.senon.model.SensorItem;
-import com.example.senon.utils.SensorIconMapper;
+import com.example.senon.utils.SensorCatalog;
+import com.example.senon.utils.SessionRecorder;
+import com.example.senon.utils.TestRunJournal;
 
+import java.io.File;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-public class MainActivity extends AppCompatActivity implements SensorEventListener, SensorViewHolder.OnSensorItemClickListener {
+public class MainActivity extends AppCompatActivity implements SensorViewHolder.OnSensorItemClickListener {
 
     private static final int PERMISSION_REQUEST_CODE = 1001;
     private static final int BATTERY_OPTIMIZATION_REQUEST_CODE = 1002;
+    private static final String STATE_AUTO_TESTING = "auto_testing";
     private static final String[] REQUIRED_PERMISSIONS = {
             Manifest.permission.BODY_SENSORS,
             Manifest.permission.ACCESS_FINE_LOCATION,
@@ -73,7 +80,7 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
     private SensorManager sensorManager;
     private SensorAdapter sensorAdapter;
     private List<Sensor> availableSensors;
-    private Map<Integer, Sensor> activeSensors;
+    private MonitoringViewModel monitoringViewModel;
     private Handler uiHandler;
     private boolean isAutoTesting = false;
 
@@ -88,6 +95,15 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
     private int touchCount = 0;
     private AutoSensorTester autoSensorTester;
     private long autoTestStartTime;
+    private boolean deepTestEnabled = false;
+    private boolean rateTestEnabled = false;
+    private boolean batchingTestEnabled = false;
+    private boolean directChannelTestEnabled = false;
+    private SensorCatalog sensorCatalog;
+    private ExecutorService backgroundExecutor;
+    // Pending revalidation of the sensor catalog after the first frame
+    private Choreographer.FrameCallback catalogRevalidationFrame;
+    private Runnable catalogRevalidation;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -110,7 +126,13 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         // Check permissions and initialize sensors
         if (checkPermissions()) {
             android.util.Log.d("MainActivity", "Permissions granted, initializing sensors");
-            initializeSensors();
+            // After a configuration change, the retained items keep their live values
+            List<SensorItem> retainedItems = monitoringViewModel.getSensorItems();
+            if (retainedItems != null) {
+                showSensorItems(retainedItems);
+            } else {
+                initializeSensors();
+            }
             // Check power optimization after permissions are granted
             checkPowerOptimization();
         } else {
@@ -118,13 +140,17 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
             requestPermissions();
         }
 
-        // Check if auto test should be triggered
-        if (getIntent().getBooleanExtra("trigger_auto_test", false)) {
+        // Check if auto test should be triggered, or continued after a configuration change
+        boolean autoTestInterrupted = savedInstanceState != null
+                && savedInstanceState.getBoolean(STATE_AUTO_TESTING, false);
+        if (getIntent().getBooleanExtra("trigger_auto_test", false) || autoTestInterrupted) {
             android.util.Log.d("MainActivity", "Auto test trigger requested");
             // Small delay to ensure UI is ready
+            // A relaunch after the process was killed mid-run continues from its journal;
+            // the new run waits on the journal lock until the old screen's run has let go of it
             uiHandler.postDelayed(() -> {
                 if (!isAutoTesting) {
-                    startAutoSensorTest();
+                    startAutoSensorTest(true);
                 }
             }, 500);
         }
@@ -132,11 +158,33 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         android.util.Log.d("MainActivity", "onCreate completed");
     }
 
+    @Override
+    protected void onNewIntent(Intent intent) {
+        super.onNewIntent(intent);
+        setIntent(intent);
+
+        // "Retest All" brings this activity back to the top instead of recreating it
+        if (intent.getBooleanExtra("trigger_auto_test", false)) {
+            android.util.Log.d("MainActivity", "Auto test retrigger requested");
+            if (autoSensorTester != null) {
+                autoSensorTester.cancelTesting();
+            }
+            isAutoTesting = false;
+            startAutoSensorTest(false);
+        }
+    }
+
     private void initializeComponents() {
         sensorManager = (SensorManager) getSystemService(Context.SENSOR_SERVICE);
+        sensorCatalog = new SensorCatalog(this);
+        backgroundExecutor = Executors.newSingleThreadExecutor();
         availableSensors = new ArrayList<>();
-        activeSensors = new HashMap<>();
         uiHandler = new Handler(Looper.getMainLooper());
+        // Monitoring outlives the activity across configuration changes
+        monitoringViewModel = new ViewModelProvider(this).get(MonitoringViewModel.class);
+        // Close sessions left open by a crash; a running recording is skipped
+        File sessionDirectory = MonitoringViewModel.getSessionDirectory(getApplication());
+        backgroundExecutor.execute(() -> SessionRecorder.recoverAll(sessionDirectory));
 
         // Initialize hardware testing components
         cameraManager = (CameraManager) getSystemService(Context.CAMERA_SERVICE);
@@ -176,6 +224,10 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         binding.recyclerViewSensors.setLayoutManager(new LinearLayoutManager(this));
         binding.recyclerViewSensors.setAdapter(sensorAdapter);
         binding.recyclerViewSensors.setHasFixedSize(true);
+
+        // Monitored sensors sample at a rate that follows their row's visibility
+        monitoringViewModel.attach(sensorAdapter, binding.recyclerViewSensors, this::showSensorValues,
+                this::onSessionRecordingStarted);
     }
 
     private void setupFAB() {
@@ -184,7 +236,7 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
                 // Stop auto testing
                 stopAutoSensorTest();
             } else {
-                startAutoSensorTest();
+                startAutoSensorTest(false);
             }
         });
     }
@@ -259,49 +311,50 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
             return;
         }
 
-        android.util.Log.d("MainActivity", "SensorManager initialized successfully");
+        Trace.beginSection("MainActivity.initializeSensors");
+        try {
+            // Get all available sensors
+            List<Sensor> allSensors = sensorManager.getSensorList(Sensor.TYPE_ALL);
 
-        // Get all available sensors
-        List<Sensor> allSensors = sensorManager.getSensorList(Sensor.TYPE_ALL);
+            if (allSensors.isEmpty()) {
+                android.util.Log.w("MainActivity", "No sensors found on device");
+                showEmptyState(true);
+                return;
+            }
 
-        android.util.Log.d("MainActivity", "Total sensors found: " + allSensors.size());
+            // Use the stored classification when it matches this build, otherwise classify now
+            List<SensorItem> sensorItems = sensorCatalog.load(allSensors);
+            boolean fromCatalog = sensorItems != null;
+            if (!fromCatalog) {
+                sensorItems = SensorCatalog.classify(allSensors);
+            }
+            android.util.Log.d("MainActivity", "Generic sensors found: " + sensorItems.size() + " of "
+                    + allSensors.size() + (fromCatalog ? " (catalog)" : ""));
 
-        if (allSensors.isEmpty()) {
-            android.util.Log.w("MainActivity", "No sensors found on device");
-            showEmptyState(true);
-            return;
+            showSensorItems(sensorItems);
+            scheduleCatalogRevalidation(allSensors, sensorItems, fromCatalog);
+        } finally {
+            Trace.endSection();
         }
+    }
 
-        // Filter to only generic/standard Android sensors
+    private void showSensorItems(List<SensorItem> sensorItems) {
+        monitoringViewModel.setSensorItems(sensorItems);
+
+        // Sensors in sensor list order, used for monitoring and auto tests
         availableSensors = new ArrayList<>();
-        for (Sensor sensor : allSensors) {
-            android.util.Log.d("MainActivity", "Sensor found: " + sensor.getName() +
-                    " (Type: " + sensor.getType() + ", Vendor: " + sensor.getVendor() + ")");
-            if (isGenericSensor(sensor)) {
-                availableSensors.add(sensor);
-                android.util.Log.d("MainActivity", "Added generic sensor: " + sensor.getName());
-            }
+        for (SensorItem sensorItem : sensorItems) {
+            availableSensors.add(sensorItem.getSensor());
+            // Freshly classified items must show sensors that are still monitored as active
+            sensorItem.setActive(monitoringViewModel.isMonitoring(sensorItem.getSensor()));
         }
 
-        android.util.Log.d("MainActivity", "Generic sensors found: " + availableSensors.size());
-
         if (availableSensors.isEmpty()) {
             android.util.Log.w("MainActivity", "No generic sensors found after filtering");
             showEmptyState(true);
             return;
         }
 
-        // Test a few common sensors to see if they can be registered
-        testSensorRegistration();
-
-        // Create sensor items
-        List<SensorItem> sensorItems = new ArrayList<>();
-        for (Sensor sensor : availableSensors) {
-            int iconResId = SensorIconMapper.getIconForSensorType(sensor.getType());
-            SensorItem sensorItem = new SensorItem(sensor, iconResId);
-            sensorItems.add(sensorItem);
-        }
-
         // Update adapter
         sensorAdapter.setSensorItems(sensorItems);
         showEmptyState(false);
@@ -315,52 +368,47 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         }
     }
 
-    private boolean isGenericSensor(Sensor sensor) {
-        String sensorName = sensor.getName().toLowerCase();
-        String vendor = sensor.getVendor().toLowerCase();
-
-        // Filter out brand-specific sensors
-        if (sensorName.contains("samsung") || sensorName.contains("aois") ||
-                sensorName.contains("scontext") || sensorName.contains("grip") ||
-                sensorName.contains("hover") || sensorName.contains("flip") ||
-                sensorName.contains("call gesture") || sensorName.contains("pocket") ||
-                sensorName.contains("hall") || sensorName.contains("protos") ||
-                sensorName.contains("vdis") || sensorName.contains("supersteady") ||
-                sensorName.contains("tcs3701") || sensorName.contains("isg5320a")) {
-            return false;
-        }
-
-        // Filter out vendor-specific sensors
-        if (vendor.contains("samsung") &&
-                (sensorName.contains("seamless") || sensorName.contains("auto brightness") ||
-                        sensorName.contains("motion") || sensorName.contains("gesture"))) {
-            return false;
-        }
-
-        // Only include standard Android sensor types
-        int sensorType = sensor.getType();
-        return sensorType == Sensor.TYPE_ACCELEROMETER ||
-                sensorType == Sensor.TYPE_GYROSCOPE ||
-                sensorType == Sensor.TYPE_MAGNETIC_FIELD ||
-                sensorType == Sensor.TYPE_LIGHT ||
-                sensorType == Sensor.TYPE_PROXIMITY ||
-                sensorType == Sensor.TYPE_PRESSURE ||
-                sensorType == Sensor.TYPE_ROTATION_VECTOR ||
-                sensorType == Sensor.TYPE_LINEAR_ACCELERATION ||
-                sensorType == Sensor.TYPE_GRAVITY ||
-                sensorType == Sensor.TYPE_AMBIENT_TEMPERATURE ||
-                sensorType == Sensor.TYPE_RELATIVE_HUMIDITY ||
-                sensorType == Sensor.TYPE_STEP_COUNTER ||
-                sensorType == Sensor.TYPE_STEP_DETECTOR ||
-                sensorType == Sensor.TYPE_SIGNIFICANT_MOTION ||
-                sensorType == Sensor.TYPE_GAME_ROTATION_VECTOR ||
-                sensorType == Sensor.TYPE_GYROSCOPE_UNCALIBRATED ||
-                sensorType == Sensor.TYPE_MAGNETIC_FIELD_UNCALIBRATED ||
-                sensorType == Sensor.TYPE_ACCELEROMETER_UNCALIBRATED ||
-                sensorType == Sensor.TYPE_HEART_RATE ||
-                sensorType == Sensor.TYPE_STATIONARY_DETECT ||
-                sensorType == Sensor.TYPE_MOTION_DETECT ||
-                sensorType == Sensor.TYPE_HEART_BEAT;
+    /**
+     * Reclassifies the sensor list in the background once the first frame is
+     * drawn, storing the result and updating the list if the catalog was stale
+     */
+    private void scheduleCatalogRevalidation(List<Sensor> allSensors, List<SensorItem> shownItems,
+                                             boolean fromCatalog) {
+        cancelCatalogRevalidation();
+        catalogRevalidation = () -> {
+            // onDestroy shuts the executor down; a late callback must not submit to it
+            if (backgroundExecutor.isShutdown()) {
+                return;
+            }
+            backgroundExecutor.execute(() -> {
+                List<SensorItem> classified = SensorCatalog.classify(allSensors);
+                boolean changed = !SensorCatalog.isSameSensors(shownItems, classified);
+                if (!fromCatalog || changed) {
+                    sensorCatalog.save(allSensors, classified);
+                }
+                if (changed) {
+                    android.util.Log.d("MainActivity", "Sensor catalog was stale, updating list");
+                    uiHandler.post(() -> {
+                        if (binding != null && !isAutoTesting) {
+                            showSensorItems(classified);
+                        }
+                    });
+                }
+            });
+        };
+        catalogRevalidationFrame = frameTimeNanos -> uiHandler.post(catalogRevalidation);
+        Choreographer.getInstance().postFrameCallback(catalogRevalidationFrame);
+    }
+
+    private void cancelCatalogRevalidation() {
+        if (catalogRevalidationFrame != null) {
+            Choreographer.getInstance().removeFrameCallback(catalogRevalidationFrame);
+            catalogRevalidationFrame = null;
+        }
+        if (catalogRevalidation != null) {
+            uiHandler.removeCallbacks(catalogRevalidation);
+            catalogRevalidation = null;
+        }
     }
 
     private void showEmptyState(boolean show) {
@@ -375,7 +423,10 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         }
     }
 
-    private void startAutoSensorTest() {
+    /**
+     * @param resume Whether to continue a run that was journaled but not completed
+     */
+    private void startAutoSensorTest(boolean resume) {
         android.util.Log.d("MainActivity", "Starting auto sensor test");
 
         if (availableSensors.isEmpty()) {
@@ -388,7 +439,12 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
 
         if (autoSensorTester == null) {
             autoSensorTester = new AutoSensorTester(this);
+            autoSensorTester.setJournal(TestRunJournal.forContext(this));
         }
+        autoSensorTester.setStageEnabled(AutoSensorTester.TestStage.STATISTICS, deepTestEnabled);
+        autoSensorTester.setStageEnabled(AutoSensorTester.TestStage.RATE, rateTestEnabled);
+        autoSensorTester.setStageEnabled(AutoSensorTester.TestStage.BATCHING, batchingTestEnabled);
+        autoSensorTester.setStageEnabled(AutoSensorTester.TestStage.DIRECT_CHANNEL, directChannelTestEnabled);
 
         isAutoTesting = true;
         autoTestStartTime = System.currentTimeMillis();
@@ -398,7 +454,7 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         Toast.makeText(this, "Starting auto test for " + availableSensors.size() + " sensors...", Toast.LENGTH_SHORT).show();
 
         // Start auto testing
-        autoSensorTester.testAllSensors(availableSensors, new AutoSensorTester.TestCallback() {
+        AutoSensorTester.TestCallback callback = new AutoSensorTester.TestCallback() {
             @Override
             public void onTestStarted(int totalSensors) {
                 runOnUiThread(() -> {
@@ -452,7 +508,13 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
                     Toast.makeText(MainActivity.this, "Auto test failed: " + error, Toast.LENGTH_LONG).show();
                 });
             }
-        });
+        };
+
+        if (resume) {
+            autoSensorTester.resumeAllSensors(availableSensors, callback);
+        } else {
+            autoSensorTester.testAllSensors(availableSensors, callback);
+        }
     }
 
 
@@ -468,129 +530,84 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
 
     private void startSensorMonitoring(Sensor sensor) {
         if (sensorManager != null && sensor != null) {
-            boolean registered = sensorManager.registerListener(this, sensor, SensorManager.SENSOR_DELAY_UI);
-            if (registered) {
-                activeSensors.put(sensor.getType(), sensor);
-                sensorAdapter.updateSensorStatus(sensor.getType(), true);
+            if (monitoringViewModel.startMonitoring(sensor)) {
+                sensorAdapter.updateSensorStatus(sensor, true);
             }
         }
     }
 
     private void stopSensorMonitoring(Sensor sensor) {
         if (sensorManager != null && sensor != null) {
-            sensorManager.unregisterListener(this, sensor);
-            activeSensors.remove(sensor.getType());
-            sensorAdapter.updateSensorStatus(sensor.getType(), false);
+            monitoringViewModel.stopMonitoring(sensor);
+            sensorAdapter.updateSensorStatus(sensor, false);
         }
     }
 
     private void stopAllSensorMonitoring() {
         if (sensorManager != null) {
-            sensorManager.unregisterListener(this);
-            activeSensors.clear();
+            monitoringViewModel.stopAllMonitoring();
 
             // Update all sensor statuses
             for (Sensor sensor : availableSensors) {
-                sensorAdapter.updateSensorStatus(sensor.getType(), false);
+                sensorAdapter.updateSensorStatus(sensor, false);
             }
         }
     }
 
-    private void testSensorRegistration() {
-        android.util.Log.d("MainActivity", "Testing sensor registration...");
-
-        // Test common sensors
-        int[] sensorTypes = {
-                Sensor.TYPE_ACCELEROMETER,
-                Sensor.TYPE_GYROSCOPE,
-                Sensor.TYPE_MAGNETIC_FIELD,
-                Sensor.TYPE_LIGHT,
-                Sensor.TYPE_PROXIMITY,
-                Sensor.TYPE_PRESSURE,
-                Sensor.TYPE_TEMPERATURE,
-                Sensor.TYPE_RELATIVE_HUMIDITY,
-                Sensor.TYPE_AMBIENT_TEMPERATURE,
-                Sensor.TYPE_ROTATION_VECTOR,
-                Sensor.TYPE_LINEAR_ACCELERATION,
-                Sensor.TYPE_GRAVITY
-        };
-
-        String[] sensorNames = {
-                "Accelerometer",
-                "Gyroscope",
-                "Magnetometer",
-                "Light",
-                "Proximity",
-                "Pressure",
-                "Temperature",
-                "Humidity",
-                "Ambient Temperature",
-                "Rotation Vector",
-                "Linear Acceleration",
-                "Gravity"
-        };
-
-        for (int i = 0; i < sensorTypes.length; i++) {
-            final int index = i; // Make effectively final for inner class
-            Sensor sensor = sensorManager.getDefaultSensor(sensorTypes[i]);
-            if (sensor != null) {
-                android.util.Log.d("MainActivity", sensorNames[i] + " sensor available: " + sensor.getName() +
-                        " (Vendor: " + sensor.getVendor() + ", Version: " + sensor.getVersion() + ")");
-
-                // Test registration
-                boolean registered = sensorManager.registerListener(new SensorEventListener() {
-                    @Override
-                    public void onSensorChanged(SensorEvent event) {
-                        android.util.Log.d("MainActivity", "Test registration successful for " + sensorNames[index]);
-                        sensorManager.unregisterListener(this);
-                    }
+    /**
+     * Runs the on-demand sensor diagnostics off the main thread and shows the report
+     */
+    private void runSensorDiagnostics() {
+        if (availableSensors.isEmpty()) {
+            Toast.makeText(this, "No sensors available for diagnostics", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-                    @Override
-                    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        Toast.makeText(this, "Running sensor diagnostics...", Toast.LENGTH_SHORT).show();
+        List<Sensor> sensors = new ArrayList<>(availableSensors);
+        backgroundExecutor.execute(() -> {
+            try {
+                DiagnosticsReport report = new SensorDiagnostics(sensorManager).run(sensors);
+                android.util.Log.d("MainActivity", "Sensor diagnostics:\n" + report.getReportText());
+                uiHandler.post(() -> {
+                    if (binding != null) {
+                        showDiagnosticsReport(report);
                     }
-                }, sensor, SensorManager.SENSOR_DELAY_NORMAL);
-
-                android.util.Log.d("MainActivity", sensorNames[i] + " registration test: " +
-                        (registered ? "SUCCESS" : "FAILED"));
-            } else {
-                android.util.Log.w("MainActivity", sensorNames[i] + " sensor NOT AVAILABLE");
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-        }
-
-        // List all available sensors
-        List<Sensor> allSensors = sensorManager.getSensorList(Sensor.TYPE_ALL);
-        android.util.Log.d("MainActivity", "Total sensors available: " + allSensors.size());
-        for (Sensor sensor : allSensors) {
-            android.util.Log.d("MainActivity", "Available sensor: " + sensor.getName() +
-                    " (Type: " + sensor.getType() + ", Vendor: " + sensor.getVendor() + ")");
-        }
+        });
     }
 
-    @Override
-    public void onSensorChanged(SensorEvent event) {
-        if (event != null && event.values != null) {
-            // Format sensor values
-            StringBuilder valueBuilder = new StringBuilder();
-            for (int i = 0; i < Math.min(event.values.length, 3); i++) {
-                if (i > 0) valueBuilder.append(", ");
-                valueBuilder.append(String.format("%.2f", event.values[i]));
-            }
-
-            String formattedValue = valueBuilder.toString();
-
-            // Update the adapter with new values
-            uiHandler.post(() -> sensorAdapter.updateSensorValue(event.sensor.getType(), formattedValue));
-        }
+    private void showDiagnosticsReport(DiagnosticsReport report) {
+        String reportText = report.getReportText();
+        new AlertDialog.Builder(this)
+                .setTitle("Sensor Diagnostics")
+                .setMessage(reportText)
+                .setPositiveButton("Close", (dialog, which) -> dialog.dismiss())
+                .setNeutralButton("Share", (dialog, which) -> {
+                    Intent shareIntent = new Intent(Intent.ACTION_SEND);
+                    shareIntent.setType("text/plain");
+                    shareIntent.putExtra(Intent.EXTRA_SUBJECT, "Sensor Diagnostics Report");
+                    shareIntent.putExtra(Intent.EXTRA_TEXT, reportText);
+                    startActivity(Intent.createChooser(shareIntent, "Share Diagnostics"));
+                })
+                .show();
     }
 
-    @Override
-    public void onAccuracyChanged(Sensor sensor, int accuracy) {
-        // Handle accuracy changes if needed
+    /**
+     * Shows the latest values of a monitored sensor, at most once per frame
+     */
+    private void showSensorValues(Sensor sensor, float[] values, int count) {
+        // Values are copied into the item and formatted by the row without allocating
+        sensorAdapter.updateSensorValues(sensor, values, count);
     }
 
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main_menu, menu);
+        menu.findItem(R.id.action_record_session).setChecked(monitoringViewModel.isRecording());
         return true;
     }
 
@@ -604,6 +621,32 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         } else if (itemId == R.id.action_stop_monitoring) {
             stopAllSensorMonitoring();
             return true;
+        } else if (itemId == R.id.action_deep_test) {
+            deepTestEnabled = !item.isChecked();
+            item.setChecked(deepTestEnabled);
+            return true;
+        } else if (itemId == R.id.action_rate_test) {
+            rateTestEnabled = !item.isChecked();
+            item.setChecked(rateTestEnabled);
+            return true;
+        } else if (itemId == R.id.action_batching_test) {
+            batchingTestEnabled = !item.isChecked();
+            item.setChecked(batchingTestEnabled);
+            return true;
+        } else if (itemId == R.id.action_direct_channel_test) {
+            directChannelTestEnabled = !item.isChecked();
+            item.setChecked(directChannelTestEnabled);
+            return true;
+        } else if (itemId == R.id.action_diagnostics) {
+            runSensorDiagnostics();
+            return true;
+        } else if (itemId == R.id.action_multi_capture) {
+            startActivity(new Intent(this, MultiSensorCaptureActivity.class));
+            return true;
+        } else if (itemId == R.id.action_record_session) {
+            toggleSessionRecording();
+            item.setChecked(monitoringViewModel.isRecording());
+            return true;
         } else if (itemId == R.id.action_refresh) {
             initializeSensors();
             checkHardwareAvailability();
@@ -616,6 +659,42 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Starts or stops recording every event of all generic sensors to a session file
+     */
+    private void toggleSessionRecording() {
+        if (monitoringViewModel.isRecording()) {
+            SessionRecorder recorder = monitoringViewModel.stopRecording();
+            if (recorder == null) {
+                // Stopped before the session file was ready
+                return;
+            }
+            String message = "Recorded " + recorder.getRecordedCount() + " events to " + recorder.getFile().getName();
+            if (recorder.getDroppedCount() > 0) {
+                message += " (" + recorder.getDroppedCount() + " dropped)";
+            }
+            Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        if (availableSensors.isEmpty()) {
+            Toast.makeText(this, "No sensors available for recording", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        // The session file is created by the ViewModel, which may outlive this activity
+        monitoringViewModel.startRecording(new ArrayList<>(availableSensors));
+    }
+
+    private void onSessionRecordingStarted(SessionRecorder recorder) {
+        if (recorder == null) {
+            Toast.makeText(this, "Could not start session recording", Toast.LENGTH_SHORT).show();
+            invalidateOptionsMenu();
+        } else {
+            Toast.makeText(this, "Recording " + recorder.getSensorCount() + " sensors to "
+                    + recorder.getFile().getName(), Toast.LENGTH_SHORT).show();
+        }
+    }
+
     /**
      * Check and request power optimization exemption for intensive sensor testing
      */
@@ -913,24 +992,42 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
     protected void onResume() {
         super.onResume();
         // Resume sensor monitoring for active sensors
-        for (Sensor sensor : activeSensors.values()) {
-            sensorManager.registerListener(this, sensor, SensorManager.SENSOR_DELAY_UI);
-        }
+        monitoringViewModel.resume();
+        sensorAdapter.startHistorySampling();
     }
 
     @Override
     protected void onPause() {
         super.onPause();
-        // Pause sensor monitoring to save battery
-        if (sensorManager != null) {
-            sensorManager.unregisterListener(this);
+        sensorAdapter.stopHistorySampling();
+        // Pause sensor monitoring to save battery, but keep streaming through a rotation
+        if (!isChangingConfigurations()) {
+            monitoringViewModel.suspend();
         }
     }
 
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        // The run stops with this activity but keeps its journal; the next one resumes it
+        outState.putBoolean(STATE_AUTO_TESTING, isAutoTesting);
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        stopAllSensorMonitoring();
+        // The ViewModel keeps monitoring across configuration changes and stops it when cleared
+        monitoringViewModel.detach();
+        cancelCatalogRevalidation();
+        if (autoSensorTester != null) {
+            if (isFinishing()) {
+                // Left by the user; discard the journal so a later launch starts afresh
+                autoSensorTester.cancelTesting();
+            }
+            // Otherwise the journal is kept for the recreated activity to resume
+            autoSensorTester.shutdown();
+        }
+        backgroundExecutor.shutdownNow();
         if (binding != null) {
             binding = null;
         }
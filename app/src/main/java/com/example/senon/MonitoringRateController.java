@@ -0,0 +1,309 @@
+package com.example.senon;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.senon.adapter.SensorAdapter;
+import com.example.senon.model.SensorItem;
+import com.example.senon.utils.SensorStreamHub;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registers the monitored sensors at a rate that depends on whether their row
+ * is on screen.
+ *
+ * Rows in the visible range sample at UI rate and rows within a few rows of it
+ * keep a low rate so they are current when scrolled in. Sensors further away
+ * are batched in the sensor hub FIFO with a long report latency, so they do
+ * not wake the CPU, or are unregistered if they have no FIFO. Tiers are
+ * re-evaluated shortly after the visible range stops changing, to avoid
+ * re-registering sensors on every frame of a fling. Registrations go through
+ * {@link SensorStreamHub}, so they are shared with other screens and survive
+ * a quick pause and resume.
+ *
+ * The controller holds no reference to an activity beyond the adapter and
+ * list it is attached to, so it can be kept in a ViewModel and re-attached to
+ * the recreated list after a configuration change without touching the
+ * subscriptions. Main thread only.
+ */
+public class MonitoringRateController {
+
+    /**
+     * Sampling tier of a monitored sensor
+     */
+    public enum Tier {
+        VISIBLE,
+        NEARBY,
+        OFF_SCREEN
+    }
+
+    private static final int NEARBY_ROWS = 4;
+    private static final int KEEP_ALIVE_PERIOD_US = 1_000_000;
+    private static final int OFF_SCREEN_MAX_REPORT_LATENCY_US = 10_000_000;
+    private static final long SETTLE_DELAY_MS = 150;
+
+    private final SensorStreamHub streamHub;
+    private final SensorEventListener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable reevaluate = this::applyTiers;
+    private final RecyclerView.OnScrollListener scrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView view, int dx, int dy) {
+            RecyclerView.LayoutManager layoutManager = view.getLayoutManager();
+            if (layoutManager instanceof LinearLayoutManager) {
+                LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+                setVisibleRange(linearLayoutManager.findFirstVisibleItemPosition(),
+                        linearLayoutManager.findLastVisibleItemPosition());
+            }
+        }
+    };
+    private SensorAdapter adapter;
+    private RecyclerView recyclerView;
+
+    // Monitored sensors by sensor key, and the tier and subscription each currently has
+    private final Map<Integer, Sensor> monitoredSensors = new LinkedHashMap<>();
+    private final SparseArray<Tier> appliedTiers = new SparseArray<>();
+    private final SparseArray<SensorStreamHub.Subscription> subscriptions = new SparseArray<>();
+    private int firstVisible = RecyclerView.NO_POSITION;
+    private int lastVisible = RecyclerView.NO_POSITION;
+    private boolean suspended;
+
+    public MonitoringRateController(Context context, SensorEventListener listener) {
+        this.streamHub = SensorStreamHub.getInstance(context);
+        this.listener = listener;
+    }
+
+    /**
+     * Follows the visible range of the list and the sensors shown in it.
+     * Scrolling is reported through onScrolled; filtering, search and sorting
+     * can put different sensors at the same positions without a scroll, so
+     * the tiers are also reevaluated whenever the adapter's shown list changes.
+     */
+    public void attachTo(SensorAdapter adapter, RecyclerView recyclerView) {
+        detach();
+        this.adapter = adapter;
+        this.recyclerView = recyclerView;
+        recyclerView.addOnScrollListener(scrollListener);
+        adapter.setOnShownListChangedListener(this::onShownListChanged);
+        adapter.setLiveSensorFilter(this::isStreaming);
+    }
+
+    /**
+     * Stops following the list, keeping the current subscriptions and tiers
+     * until a new list is attached and laid out
+     */
+    public void detach() {
+        handler.removeCallbacks(reevaluate);
+        if (recyclerView != null) {
+            recyclerView.removeOnScrollListener(scrollListener);
+        }
+        if (adapter != null) {
+            adapter.setOnShownListChangedListener(null);
+            adapter.setLiveSensorFilter(null);
+        }
+        adapter = null;
+        recyclerView = null;
+        firstVisible = RecyclerView.NO_POSITION;
+        lastVisible = RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * Starts monitoring a sensor at the tier of its row
+     *
+     * @return Whether the sensor is now monitored
+     */
+    public boolean start(Sensor sensor) {
+        int key = SensorItem.keyOf(sensor);
+        monitoredSensors.put(key, sensor);
+        if (suspended) {
+            return true;
+        }
+        if (!apply(key, sensor, getTier(sensor))) {
+            monitoredSensors.remove(key);
+            return false;
+        }
+        return true;
+    }
+
+    public void stop(Sensor sensor) {
+        int key = SensorItem.keyOf(sensor);
+        monitoredSensors.remove(key);
+        appliedTiers.remove(key);
+        closeSubscription(key);
+    }
+
+    public void stopAll() {
+        handler.removeCallbacks(reevaluate);
+        closeAllSubscriptions();
+        monitoredSensors.clear();
+        appliedTiers.clear();
+    }
+
+    /**
+     * Unregisters all sensors while the activity is paused, keeping the
+     * monitored set
+     */
+    public void suspend() {
+        suspended = true;
+        handler.removeCallbacks(reevaluate);
+        closeAllSubscriptions();
+        appliedTiers.clear();
+    }
+
+    public void resume() {
+        if (!suspended) {
+            // Still registered, e.g. after a configuration change
+            return;
+        }
+        suspended = false;
+        applyTiers();
+    }
+
+    public boolean isMonitoring(Sensor sensor) {
+        return monitoredSensors.containsKey(SensorItem.keyOf(sensor));
+    }
+
+    /**
+     * @return Whether the sensor delivers values as they happen, i.e. it has a
+     * subscription that is neither closed nor batched off screen
+     */
+    public boolean isStreaming(Sensor sensor) {
+        int key = SensorItem.keyOf(sensor);
+        return subscriptions.get(key) != null && appliedTiers.get(key) != Tier.OFF_SCREEN;
+    }
+
+    /**
+     * @return The monitored sensors, in the order they were started
+     */
+    public List<Sensor> getMonitoredSensors() {
+        return new ArrayList<>(monitoredSensors.values());
+    }
+
+    private void setVisibleRange(int first, int last) {
+        if (first == firstVisible && last == lastVisible) {
+            return;
+        }
+        firstVisible = first;
+        lastVisible = last;
+        if (!monitoredSensors.isEmpty()) {
+            handler.removeCallbacks(reevaluate);
+            handler.postDelayed(reevaluate, SETTLE_DELAY_MS);
+        }
+    }
+
+    private void onShownListChanged() {
+        // Positions map to other sensors now, even if the visible range stays the same
+        if (!monitoredSensors.isEmpty()) {
+            handler.removeCallbacks(reevaluate);
+            handler.postDelayed(reevaluate, SETTLE_DELAY_MS);
+        }
+    }
+
+    private void applyTiers() {
+        if (suspended) {
+            return;
+        }
+        for (Map.Entry<Integer, Sensor> entry : monitoredSensors.entrySet()) {
+            Sensor sensor = entry.getValue();
+            apply(entry.getKey(), sensor, getTier(sensor));
+        }
+    }
+
+    private Tier getTier(Sensor sensor) {
+        if (adapter == null || firstVisible == RecyclerView.NO_POSITION) {
+            // Not laid out yet; assume the row is visible
+            return Tier.VISIBLE;
+        }
+        int position = adapter.getPosition(sensor);
+        if (position < 0) {
+            return Tier.OFF_SCREEN;
+        } else if (position >= firstVisible && position <= lastVisible) {
+            return Tier.VISIBLE;
+        } else if (position >= firstVisible - NEARBY_ROWS && position <= lastVisible + NEARBY_ROWS) {
+            return Tier.NEARBY;
+        } else {
+            return Tier.OFF_SCREEN;
+        }
+    }
+
+    /**
+     * Changes the sensor's subscription if its tier changed
+     *
+     * @return Whether the subscription succeeded
+     */
+    private boolean apply(int key, Sensor sensor, Tier tier) {
+        if (appliedTiers.get(key) == tier) {
+            return true;
+        }
+
+        int periodUs;
+        int maxReportLatencyUs = 0;
+        switch (tier) {
+            case VISIBLE:
+                periodUs = SensorManager.SENSOR_DELAY_UI;
+                break;
+            case NEARBY:
+                periodUs = KEEP_ALIVE_PERIOD_US;
+                break;
+            default:
+                if (sensor.getFifoMaxEventCount() <= 0) {
+                    // Without a FIFO the events would wake the CPU anyway
+                    closeSubscription(key);
+                    appliedTiers.put(key, tier);
+                    return true;
+                }
+                periodUs = KEEP_ALIVE_PERIOD_US;
+                maxReportLatencyUs = OFF_SCREEN_MAX_REPORT_LATENCY_US;
+                break;
+        }
+
+        boolean registered = true;
+        SensorStreamHub.Subscription subscription = subscriptions.get(key);
+        if (subscription != null) {
+            subscription.setRate(periodUs, maxReportLatencyUs);
+        } else {
+            subscription = streamHub.subscribe(sensor, periodUs, maxReportLatencyUs, listener);
+            if (subscription != null) {
+                subscriptions.put(key, subscription);
+            } else {
+                registered = false;
+            }
+        }
+
+        if (registered) {
+            appliedTiers.put(key, tier);
+        } else {
+            appliedTiers.remove(key);
+            android.util.Log.w("MonitoringRateController", "Failed to register " + sensor.getName() + " at " + tier);
+        }
+        return registered;
+    }
+
+    private void closeSubscription(int key) {
+        SensorStreamHub.Subscription subscription = subscriptions.get(key);
+        if (subscription != null) {
+            subscription.close();
+            subscriptions.remove(key);
+        }
+    }
+
+    private void closeAllSubscriptions() {
+        for (int i = 0; i < subscriptions.size(); i++) {
+            subscriptions.valueAt(i).close();
+        }
+        subscriptions.clear();
+    }
+}
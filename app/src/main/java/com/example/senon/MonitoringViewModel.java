@@ -0,0 +1,258 @@
+package com.example.senon;
+
+import android.app.Application;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Trace;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.senon.adapter.SensorAdapter;
+import com.example.senon.model.SensorItem;
+import com.example.senon.utils.SensorStreamHub;
+import com.example.senon.utils.SensorValueCoalescer;
+import com.example.senon.utils.SessionRecorder;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Live monitoring state of the sensor list, kept across configuration changes.
+ *
+ * The monitored sensors, their stream subscriptions and the shown sensor items
+ * (with their current values and history) live here instead of in
+ * MainActivity, so rotating the screen neither unregisters the sensors nor
+ * loses what was accumulated. The activity attaches its list and a value
+ * listener when it is created and detaches them when it is destroyed; values
+ * arriving in between only update the retained state. Monitoring ends when
+ * the activity finishes for good.
+ *
+ * A session recording of all sensors is held here as well, so it keeps
+ * running through rotation and while the screen is in the background. Its
+ * file is created on an executor owned by this ViewModel, and the outcome
+ * goes to whichever recording listener is attached when it arrives.
+ */
+public class MonitoringViewModel extends AndroidViewModel implements SensorEventListener {
+
+    /**
+     * Told on the main thread whether a session recording started
+     */
+    public interface RecordingListener {
+        /**
+         * @param recorder The running recorder, or null if recording could not start
+         */
+        void onRecordingStarted(SessionRecorder recorder);
+    }
+
+    private static final String TAG = "MonitoringViewModel";
+    private static final String SESSION_DIRECTORY = "sessions";
+
+    private final MonitoringRateController monitoringController;
+    private final SensorValueCoalescer valueCoalescer;
+    private SensorValueCoalescer.Listener valueListener;
+    private List<SensorItem> sensorItems;
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+    private SessionRecorder sessionRecorder;
+    private SessionRecorder pendingRecorder; // File being created on the recording executor
+    private final ExecutorService recordingExecutor = Executors.newSingleThreadExecutor();
+    private RecordingListener recordingListener;
+
+    public MonitoringViewModel(@NonNull Application application) {
+        super(application);
+        monitoringController = new MonitoringRateController(application, this);
+        // Created on the main thread with the ViewModel, so flushes run there
+        valueCoalescer = new SensorValueCoalescer(this::dispatchSensorValues,
+                SensorItem.MAX_DISPLAYED_VALUES, 2);
+    }
+
+    /**
+     * Connects a newly created list to the running monitoring
+     *
+     * @param adapter           Adapter whose positions decide the sampling tiers
+     * @param recyclerView      List whose visible range decides the sampling tiers
+     * @param valueListener     Shows coalesced values on the main thread
+     * @param recordingListener Told on the main thread whether a session recording started
+     */
+    public void attach(SensorAdapter adapter, RecyclerView recyclerView,
+                       SensorValueCoalescer.Listener valueListener, RecordingListener recordingListener) {
+        this.valueListener = valueListener;
+        this.recordingListener = recordingListener;
+        monitoringController.attachTo(adapter, recyclerView);
+        // Values flushed while detached were not shown; show the next event of each sensor
+        valueCoalescer.clear();
+    }
+
+    public void detach() {
+        valueListener = null;
+        recordingListener = null;
+        monitoringController.detach();
+    }
+
+    /**
+     * @return Whether the sensor is now monitored
+     */
+    public boolean startMonitoring(Sensor sensor) {
+        return monitoringController.start(sensor);
+    }
+
+    public void stopMonitoring(Sensor sensor) {
+        monitoringController.stop(sensor);
+    }
+
+    public void stopAllMonitoring() {
+        monitoringController.stopAll();
+        valueCoalescer.clear();
+    }
+
+    /**
+     * Unregisters all sensors while the screen is in the background
+     */
+    public void suspend() {
+        monitoringController.suspend();
+    }
+
+    public void resume() {
+        monitoringController.resume();
+    }
+
+    public boolean isMonitoring(Sensor sensor) {
+        return monitoringController.isMonitoring(sensor);
+    }
+
+    /**
+     * @return The last sensor items shown, or null if none were shown yet
+     */
+    public List<SensorItem> getSensorItems() {
+        return sensorItems;
+    }
+
+    public void setSensorItems(List<SensorItem> sensorItems) {
+        this.sensorItems = sensorItems;
+    }
+
+    /**
+     * Starts recording every event of the given sensors to a new session file.
+     * The file is created on the recording executor and the sensors are
+     * subscribed back on the main thread, where the attached recording
+     * listener is told the outcome.
+     */
+    public void startRecording(List<Sensor> sensors) {
+        stopRecording();
+        String name = "session_" + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date())
+                + SessionRecorder.FILE_EXTENSION;
+        SessionRecorder recorder = new SessionRecorder(new File(getSessionDirectory(getApplication()), name));
+        pendingRecorder = recorder;
+        try {
+            recordingExecutor.execute(() -> {
+                boolean opened;
+                try {
+                    recorder.open(sensors);
+                    opened = true;
+                } catch (IOException e) {
+                    Log.e(TAG, "Could not create session file", e);
+                    opened = false;
+                }
+                boolean ready = opened;
+                uiHandler.post(() -> onRecorderOpened(recorder, ready));
+            });
+        } catch (RejectedExecutionException e) {
+            pendingRecorder = null;
+            notifyRecordingStarted(null);
+        }
+    }
+
+    private void onRecorderOpened(SessionRecorder recorder, boolean opened) {
+        if (pendingRecorder != recorder) {
+            // Stopped while the file was being created
+            if (opened) {
+                recorder.stop();
+            }
+            return;
+        }
+        pendingRecorder = null;
+        if (opened && recorder.start(SensorStreamHub.getInstance(getApplication()))) {
+            sessionRecorder = recorder;
+            notifyRecordingStarted(recorder);
+        } else {
+            notifyRecordingStarted(null);
+        }
+    }
+
+    private void notifyRecordingStarted(SessionRecorder recorder) {
+        if (recordingListener != null) {
+            recordingListener.onRecordingStarted(recorder);
+        }
+    }
+
+    /**
+     * @return The stopped recorder, or null if none was recording yet
+     */
+    public SessionRecorder stopRecording() {
+        pendingRecorder = null;
+        SessionRecorder recorder = sessionRecorder;
+        if (recorder != null) {
+            recorder.stop();
+            sessionRecorder = null;
+        }
+        return recorder;
+    }
+
+    /**
+     * @return Whether a recording is running or its file is being created
+     */
+    public boolean isRecording() {
+        return pendingRecorder != null || sessionRecorder != null && sessionRecorder.isRecording();
+    }
+
+    public static File getSessionDirectory(Application application) {
+        return new File(application.getFilesDir(), SESSION_DIRECTORY);
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        // Runs on the sensor dispatch thread; the coalescer hands changed values to the next frame
+        if (event != null && event.values != null) {
+            Trace.beginSection("MonitoringViewModel.onSensorChanged");
+            try {
+                valueCoalescer.offer(event.sensor, event.values);
+            } finally {
+                Trace.endSection();
+            }
+        }
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        // Handle accuracy changes if needed
+    }
+
+    private void dispatchSensorValues(Sensor sensor, float[] values, int count) {
+        if (valueListener != null) {
+            valueListener.onSensorValues(sensor, values, count);
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        stopRecording();
+        // Not interrupted, so a file being created is finished and then closed on the main thread
+        recordingExecutor.shutdown();
+        stopAllMonitoring();
+        monitoringController.detach();
+        valueListener = null;
+        recordingListener = null;
+    }
+}
@@ -0,0 +1,403 @@
+package com.example.senon;
+
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Typeface;
+import android.hardware.Sensor;
+import android.hardware.SensorManager;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.TypedValue;
+import android.view.Choreographer;
+import android.view.MenuItem;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.FileProvider;
+import androidx.lifecycle.ViewModelProvider;
+
+import com.example.senon.databinding.ActivityMultiSensorCaptureBinding;
+import com.example.senon.utils.FixedPointFormatter;
+import com.example.senon.utils.MultiSensorCapture;
+import com.example.senon.utils.SampleRingBuffer;
+import com.example.senon.widget.SparklineView;
+import com.google.android.material.chip.Chip;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Activity for recording several sensors at once on a shared timeline, to
+ * compare them side by side and export them together
+ */
+public class MultiSensorCaptureActivity extends AppCompatActivity {
+
+    // Time span shown in the aligned plots, and the points it is resampled to
+    private static final long ALIGNED_WINDOW_NS = 2_000_000_000L;
+    private static final int ALIGNED_POINTS = 120;
+    private static final long STATUS_REFRESH_INTERVAL_MS = 250;
+    private static final int[] DEFAULT_SENSOR_TYPES = {
+            Sensor.TYPE_ACCELEROMETER,
+            Sensor.TYPE_GYROSCOPE,
+            Sensor.TYPE_MAGNETIC_FIELD
+    };
+
+    private ActivityMultiSensorCaptureBinding binding;
+    private SensorManager sensorManager;
+    private MultiSensorCaptureViewModel captureViewModel;
+    private Handler uiHandler;
+    private ExecutorService backgroundExecutor;
+    private Choreographer choreographer;
+    private final Choreographer.FrameCallback captureFrameCallback = frameTimeNanos -> onCaptureFrame();
+
+    // Continuous sensors that can be captured, and the rows of the shown capture
+    private final List<Sensor> candidateSensors = new ArrayList<>();
+    private final List<TrackRow> trackRows = new ArrayList<>();
+    private final float[] resampleScratch = new float[MultiSensorCapture.MAX_VALUES];
+    private long lastStatusRefreshMs;
+
+    /**
+     * Views of one captured sensor. Each text view has its own formatter,
+     * since TextView keeps the buffer it was given.
+     */
+    private static class TrackRow {
+        TextView statsText;
+        TextView valuesText;
+        SparklineView sparkline;
+        final SampleRingBuffer aligned = new SampleRingBuffer(ALIGNED_POINTS, 3);
+        final FixedPointFormatter statsFormatter = new FixedPointFormatter(1);
+        final FixedPointFormatter valuesFormatter = new FixedPointFormatter(3);
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        binding = ActivityMultiSensorCaptureBinding.inflate(getLayoutInflater());
+        setContentView(binding.getRoot());
+
+        sensorManager = (SensorManager) getSystemService(Context.SENSOR_SERVICE);
+        captureViewModel = new ViewModelProvider(this).get(MultiSensorCaptureViewModel.class);
+        uiHandler = new Handler(Looper.getMainLooper());
+        backgroundExecutor = Executors.newSingleThreadExecutor();
+        choreographer = Choreographer.getInstance();
+
+        setupToolbar();
+        setupSensorChips();
+        setupButtons();
+
+        // Pick up a capture that was running before a configuration change
+        MultiSensorCapture capture = captureViewModel.getCapture();
+        if (capture != null) {
+            showTrackRows(capture);
+            if (capture.isCapturing()) {
+                showCapturingState();
+                choreographer.postFrameCallback(captureFrameCallback);
+            } else {
+                showStoppedState();
+                onCaptureFrame();
+            }
+        } else {
+            showStoppedState();
+        }
+    }
+
+    private void setupToolbar() {
+        setSupportActionBar(binding.toolbar);
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+            getSupportActionBar().setTitle("Multi-Sensor Capture");
+        }
+    }
+
+    private void setupSensorChips() {
+        if (sensorManager == null) {
+            Toast.makeText(this, "Sensor manager not available", Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        // Only streaming sensors have a timeline worth aligning
+        for (Sensor sensor : sensorManager.getSensorList(Sensor.TYPE_ALL)) {
+            if (sensor.getReportingMode() == Sensor.REPORTING_MODE_CONTINUOUS) {
+                candidateSensors.add(sensor);
+            }
+        }
+
+        if (!captureViewModel.isSelectionInitialized()) {
+            for (int type : DEFAULT_SENSOR_TYPES) {
+                Sensor sensor = sensorManager.getDefaultSensor(type);
+                if (sensor != null) {
+                    captureViewModel.setSelected(sensor, true);
+                }
+            }
+        }
+
+        for (Sensor sensor : candidateSensors) {
+            Chip chip = new Chip(this);
+            chip.setText(sensor.getName());
+            chip.setCheckable(true);
+            chip.setChecked(captureViewModel.isSelected(sensor));
+            chip.setOnCheckedChangeListener((button, checked) -> captureViewModel.setSelected(sensor, checked));
+            binding.chipGroupSensors.addView(chip);
+        }
+    }
+
+    private void setupButtons() {
+        binding.buttonStartCapture.setOnClickListener(v -> startCapture());
+        binding.buttonStopCapture.setOnClickListener(v -> stopCapture());
+        binding.buttonExportCapture.setOnClickListener(v -> exportCapture());
+    }
+
+    private void startCapture() {
+        List<Sensor> selected = new ArrayList<>();
+        for (Sensor sensor : candidateSensors) {
+            if (captureViewModel.isSelected(sensor)) {
+                selected.add(sensor);
+            }
+        }
+        if (selected.isEmpty()) {
+            Toast.makeText(this, "Select at least one sensor", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        if (!captureViewModel.startCapture(selected)) {
+            Toast.makeText(this, "Failed to register all selected sensors", Toast.LENGTH_LONG).show();
+            return;
+        }
+        android.util.Log.d("MultiSensorCaptureActivity", "Capturing " + selected.size() + " sensors");
+
+        showTrackRows(captureViewModel.getCapture());
+        showCapturingState();
+        choreographer.postFrameCallback(captureFrameCallback);
+    }
+
+    private void stopCapture() {
+        captureViewModel.stopCapture();
+        choreographer.removeFrameCallback(captureFrameCallback);
+        showStoppedState();
+        // Show the final state of the recording
+        onCaptureFrame();
+    }
+
+    private void showCapturingState() {
+        binding.buttonStartCapture.setEnabled(false);
+        binding.buttonStopCapture.setEnabled(true);
+        binding.buttonExportCapture.setEnabled(false);
+        setSensorChipsEnabled(false);
+    }
+
+    private void showStoppedState() {
+        MultiSensorCapture capture = captureViewModel.getCapture();
+        binding.buttonStartCapture.setEnabled(true);
+        binding.buttonStopCapture.setEnabled(false);
+        binding.buttonExportCapture.setEnabled(capture != null && capture.getTotalCount() > 0);
+        setSensorChipsEnabled(true);
+    }
+
+    private void setSensorChipsEnabled(boolean enabled) {
+        for (int i = 0; i < binding.chipGroupSensors.getChildCount(); i++) {
+            binding.chipGroupSensors.getChildAt(i).setEnabled(enabled);
+        }
+    }
+
+    /**
+     * Creates a row with stats, latest values and an aligned plot for every captured sensor
+     */
+    private void showTrackRows(MultiSensorCapture capture) {
+        binding.layoutTracks.removeAllViews();
+        trackRows.clear();
+
+        int plotHeight = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 72,
+                getResources().getDisplayMetrics());
+        int spacing = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 12,
+                getResources().getDisplayMetrics());
+
+        for (MultiSensorCapture.Track track : capture.getTracks()) {
+            TrackRow row = new TrackRow();
+
+            row.statsText = new TextView(this);
+            row.statsText.setTextAppearance(com.google.android.material.R.style.TextAppearance_Material3_TitleSmall);
+            row.statsText.setText(track.getSensor().getName());
+            binding.layoutTracks.addView(row.statsText);
+
+            row.valuesText = new TextView(this);
+            row.valuesText.setTypeface(Typeface.MONOSPACE);
+            binding.layoutTracks.addView(row.valuesText);
+
+            row.sparkline = new SparklineView(this);
+            row.sparkline.setSamples(row.aligned);
+            LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
+                    LinearLayout.LayoutParams.MATCH_PARENT, plotHeight);
+            params.bottomMargin = spacing;
+            binding.layoutTracks.addView(row.sparkline, params);
+
+            trackRows.add(row);
+        }
+    }
+
+    /**
+     * Shows the capture once per frame: every track is resampled at the same
+     * points in time, so the plots line up with each other
+     */
+    private void onCaptureFrame() {
+        MultiSensorCapture capture = captureViewModel.getCapture();
+        if (binding == null || capture == null) {
+            return;
+        }
+        if (capture.isCapturing() && capture.isLimitReached()) {
+            Toast.makeText(this, "Capture limit reached", Toast.LENGTH_SHORT).show();
+            stopCapture();
+            return;
+        }
+
+        long endNs = capture.getLatestTimestampNs();
+        long startNs = endNs - ALIGNED_WINDOW_NS;
+        List<MultiSensorCapture.Track> tracks = capture.getTracks();
+        for (int i = 0; i < tracks.size() && i < trackRows.size(); i++) {
+            MultiSensorCapture.Track track = tracks.get(i);
+            TrackRow row = trackRows.get(i);
+
+            track.resample(startNs, endNs, ALIGNED_POINTS, resampleScratch, row.aligned);
+            row.sparkline.onSamplesChanged();
+
+            int count = track.getCount();
+            row.statsFormatter.reset()
+                    .append(track.getSensor().getName()).append("  ")
+                    .append(count).append(" events  ")
+                    .append(track.getRateHz()).append(" Hz");
+            if (track.getDroppedCount() > 0) {
+                row.statsFormatter.append("  ").append(track.getDroppedCount()).append(" dropped");
+            }
+            row.statsFormatter.applyTo(row.statsText);
+
+            row.valuesFormatter.reset();
+            if (count > 0) {
+                for (int axis = 0; axis < track.getValueCount(); axis++) {
+                    if (axis > 0) row.valuesFormatter.append("  ");
+                    row.valuesFormatter.append(track.getValue(count - 1, axis));
+                }
+            }
+            row.valuesFormatter.applyTo(row.valuesText);
+        }
+
+        long now = SystemClock.uptimeMillis();
+        if (!capture.isCapturing() || now - lastStatusRefreshMs >= STATUS_REFRESH_INTERVAL_MS) {
+            lastStatusRefreshMs = now;
+            long spanNs = (capture.isCapturing() ? SystemClock.elapsedRealtimeNanos() : endNs)
+                    - capture.getStartTimestampNs();
+            binding.textViewCaptureStatus.setText(String.format(Locale.getDefault(),
+                    "%s  %.1f s  %d events  %d dropped",
+                    capture.isCapturing() ? "CAPTURING" : "STOPPED",
+                    spanNs / 1e9, capture.getTotalCount(), capture.getTotalDroppedCount()));
+        }
+
+        if (capture.isCapturing()) {
+            choreographer.postFrameCallback(captureFrameCallback);
+        }
+    }
+
+    /**
+     * Writes the capture to a CSV file off the main thread and offers to share it
+     */
+    private void exportCapture() {
+        MultiSensorCapture capture = captureViewModel.getCapture();
+        if (capture == null || capture.isCapturing() || capture.getTotalCount() == 0) {
+            Toast.makeText(this, "Nothing captured to export", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        binding.buttonExportCapture.setEnabled(false);
+        Toast.makeText(this, "Exporting capture...", Toast.LENGTH_SHORT).show();
+        File directory = new File(getCacheDir(), "captures");
+        String fileName = "capture_" + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date()) + ".csv";
+
+        backgroundExecutor.execute(() -> {
+            File file = new File(directory, fileName);
+            boolean written;
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                written = false;
+            } else {
+                try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+                    capture.writeCsv(writer);
+                    written = true;
+                } catch (IOException e) {
+                    android.util.Log.e("MultiSensorCaptureActivity", "Failed to export capture", e);
+                    written = false;
+                }
+            }
+
+            boolean exported = written;
+            uiHandler.post(() -> {
+                if (binding == null) {
+                    return;
+                }
+                binding.buttonExportCapture.setEnabled(true);
+                if (exported) {
+                    shareCsvFile(file);
+                } else {
+                    Toast.makeText(this, "Could not export capture", Toast.LENGTH_SHORT).show();
+                }
+            });
+        });
+    }
+
+    private void shareCsvFile(File file) {
+        try {
+            Uri uri = FileProvider.getUriForFile(this, getPackageName() + ".fileprovider", file);
+
+            Intent shareIntent = new Intent(Intent.ACTION_SEND);
+            shareIntent.setType("text/csv");
+            shareIntent.putExtra(Intent.EXTRA_STREAM, uri);
+            shareIntent.putExtra(Intent.EXTRA_SUBJECT, "Multi-Sensor Capture");
+            shareIntent.setFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+
+            startActivity(Intent.createChooser(shareIntent, "Share Capture"));
+        } catch (Exception e) {
+            Toast.makeText(this, "Could not share capture: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(@NonNull MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            onBackPressed();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // A capture with a gap is not usable; stop it unless the screen is only rotating
+        if (captureViewModel.isCapturing() && !isChangingConfigurations()) {
+            stopCapture();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        choreographer.removeFrameCallback(captureFrameCallback);
+        // Let a running export finish; its result is dropped once the views are gone
+        backgroundExecutor.shutdown();
+        if (binding != null) {
+            binding = null;
+        }
+    }
+}
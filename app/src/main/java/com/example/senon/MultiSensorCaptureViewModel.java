@@ -0,0 +1,92 @@
+package com.example.senon;
+
+import android.app.Application;
+import android.hardware.Sensor;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+
+import com.example.senon.model.SensorItem;
+import com.example.senon.utils.MultiSensorCapture;
+import com.example.senon.utils.SensorStreamHub;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Sensor selection and recording of the multi-sensor capture screen, kept
+ * across configuration changes so a rotation does not interrupt a capture.
+ */
+public class MultiSensorCaptureViewModel extends AndroidViewModel {
+
+    public static final long MAX_CAPTURE_MILLIS = 60_000;
+
+    private final SensorStreamHub streamHub;
+    // Sensor keys of the selected sensors, in selection order
+    private final Set<Integer> selectedKeys = new LinkedHashSet<>();
+    private MultiSensorCapture capture;
+    private boolean selectionInitialized;
+
+    public MultiSensorCaptureViewModel(@NonNull Application application) {
+        super(application);
+        streamHub = SensorStreamHub.getInstance(application);
+    }
+
+    /**
+     * @return Whether the default selection still has to be applied
+     */
+    public boolean isSelectionInitialized() {
+        return selectionInitialized;
+    }
+
+    public void setSelected(Sensor sensor, boolean selected) {
+        selectionInitialized = true;
+        if (selected) {
+            selectedKeys.add(SensorItem.keyOf(sensor));
+        } else {
+            selectedKeys.remove(SensorItem.keyOf(sensor));
+        }
+    }
+
+    public boolean isSelected(Sensor sensor) {
+        return selectedKeys.contains(SensorItem.keyOf(sensor));
+    }
+
+    /**
+     * Starts recording the given sensors, replacing any previous capture
+     *
+     * @return Whether every sensor could be registered
+     */
+    public boolean startCapture(List<Sensor> sensors) {
+        stopCapture();
+        capture = new MultiSensorCapture(sensors, MAX_CAPTURE_MILLIS);
+        if (!capture.start(streamHub)) {
+            capture = null;
+            return false;
+        }
+        return true;
+    }
+
+    public void stopCapture() {
+        if (capture != null) {
+            capture.stop();
+        }
+    }
+
+    public boolean isCapturing() {
+        return capture != null && capture.isCapturing();
+    }
+
+    /**
+     * @return The running or last capture, or null if none was started
+     */
+    public MultiSensorCapture getCapture() {
+        return capture;
+    }
+
+    @Override
+    protected void onCleared() {
+        stopCapture();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.senon;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener2;
+import android.hardware.SensorManager;
+
+import com.example.senon.model.TestResult;
+
+/**
+ * Test strategy for on-change and special-trigger sensors (light, proximity,
+ * step counter, ...). These only report when their value changes, so after
+ * registering the strategy asks for a flush: a completed flush proves the
+ * sensor is alive even when nothing changed during the test.
+ */
+class OnChangeTestStrategy extends SensorTestStrategy implements SensorEventListener2 {
+
+    private static final long FLUSH_TIMEOUT_MS = 2000;
+    private static final long NO_FLUSH_TIMEOUT_MS = 5000; // Wait for a real change when flush is unsupported
+
+    private volatile float[] sampleData;
+    private volatile int accuracy = 0;
+    private volatile boolean flushCompleted = false;
+    private boolean flushRequested = false;
+
+    OnChangeTestStrategy(int index, Sensor sensor) {
+        super(index, sensor);
+    }
+
+    @Override
+    protected String register(SensorManager sensorManager) {
+        String error = registerWithFallback(sensorManager, this);
+        if (error == null) {
+            flushRequested = sensorManager.flush(this);
+        }
+        return error;
+    }
+
+    @Override
+    protected void unregister(SensorManager sensorManager) {
+        sensorManager.unregisterListener(this);
+    }
+
+    @Override
+    protected long getTimeoutMs() {
+        return flushRequested ? FLUSH_TIMEOUT_MS : NO_FLUSH_TIMEOUT_MS;
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        recordLatency(event.timestamp);
+        if (sampleData == null) {
+            sampleData = event.values.clone();
+            reportVerdict();
+        }
+    }
+
+    @Override
+    public void onFlushCompleted(Sensor sensor) {
+        flushCompleted = true;
+        reportVerdict();
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        this.accuracy = accuracy;
+    }
+
+    @Override
+    TestResult buildResult() {
+        // A completed flush without any event means the value simply did not change
+        return new TestResult(sensor, sampleData != null || flushCompleted, null, sampleData,
+                getElapsedTime(), accuracy);
+    }
+
+    @Override
+    TestResult buildTimeoutResult() {
+        if (flushRequested) {
+            return createFailedResult("Sensor registered successfully but did not answer a flush request within "
+                    + getTimeoutMs() + "ms");
+        }
+        return createFailedResult("Sensor registered successfully but reported no change within "
+                + (getTimeoutMs() / 1000) + " seconds");
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.senon;
+
+import android.hardware.Sensor;
+import android.hardware.SensorManager;
+import android.hardware.TriggerEvent;
+import android.hardware.TriggerEventListener;
+
+import com.example.senon.model.TestResult;
+
+/**
+ * Test strategy for one-shot sensors such as significant motion. These can
+ * only be armed with requestTriggerSensor and fire on a real-world event, so
+ * the verdict is reached as soon as the trigger request is accepted. Unless
+ * the sensor happened to fire by then, the result is reported as armed but
+ * not triggered rather than as a pass, since no data was delivered.
+ */
+class OneShotTestStrategy extends SensorTestStrategy {
+
+    private static final long ARM_TIMEOUT_MS = 1000;
+
+    private final TriggerEventListener triggerListener = new TriggerEventListener() {
+        @Override
+        public void onTrigger(TriggerEvent event) {
+            recordLatency(event.timestamp);
+            triggerData = event.values.clone();
+            triggered = true;
+        }
+    };
+
+    private volatile float[] triggerData;
+    private volatile boolean triggered = false;
+
+    OneShotTestStrategy(int index, Sensor sensor) {
+        super(index, sensor);
+    }
+
+    @Override
+    protected String register(SensorManager sensorManager) {
+        if (!sensorManager.requestTriggerSensor(triggerListener, sensor)) {
+            return "Failed to arm trigger sensor - sensor may not be available or accessible";
+        }
+        reportVerdict();
+        return null;
+    }
+
+    @Override
+    protected void unregister(SensorManager sensorManager) {
+        if (!triggered) {
+            sensorManager.cancelTriggerSensor(triggerListener, sensor);
+        }
+    }
+
+    @Override
+    protected long getTimeoutMs() {
+        return ARM_TIMEOUT_MS;
+    }
+
+    @Override
+    TestResult buildResult() {
+        // Trigger events carry no accuracy
+        return new TestResult.Builder()
+                .setSensor(sensor)
+                .setWorking(true)
+                .setArmedOnly(!triggered)
+                .setSampleData(triggerData)
+                .setTestDuration(getElapsedTime())
+                .setAccuracy(TestResult.ACCURACY_UNKNOWN)
+                .build();
+    }
+
+    @Override
+    TestResult buildTimeoutResult() {
+        return createFailedResult("Trigger sensor could not be armed");
+    }
+}
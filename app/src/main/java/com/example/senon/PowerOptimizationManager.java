@@ -240,6 +240,22 @@ public class PowerOptimizationManager {
                 manufacturer.contains("realme");
     }
 
+    /**
+     * Get how many sensors can be registered at once during auto testing.
+     * Some OEM sensor HALs drop or stall events when too many sensors are
+     * activated together, so those devices get a smaller group size.
+     */
+    public static int getRecommendedSensorConcurrency() {
+        String manufacturer = getDeviceManufacturer();
+        if (manufacturer.contains("xiaomi") || manufacturer.contains("redmi")) {
+            return 2;
+        }
+        if (hasAggressivePowerManagement()) {
+            return 4;
+        }
+        return 8;
+    }
+
     /**
      * Show power optimization dialog with device-specific guidance
      */
@@ -0,0 +1,161 @@
+package com.example.senon;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.SystemClock;
+
+import com.example.senon.model.LatencySummary;
+import com.example.senon.model.RateStatistics;
+import com.example.senon.model.TestResult;
+import com.example.senon.utils.LatencyHistogram;
+import com.example.senon.utils.SensorDispatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test stage that requests a specific sampling period and measures the rate the
+ * sensor actually delivers, together with the inter-event jitter, from
+ * SensorEvent.timestamp.
+ */
+class RateVerificationStage extends SensorTestStage {
+
+    static final long DEFAULT_DURATION_MS = 2000;
+    private static final long WARM_UP_NS = 500_000_000L; // Ignore the HAL ramping up to the new rate
+
+    private final long durationMs;
+    private final int requestedPeriodUs;
+
+    /**
+     * @param durationMs        How long to measure after the warm-up
+     * @param requestedPeriodUs The period to request, or 0 to request each
+     *                          sensor's advertised fastest rate (getMinDelay)
+     */
+    RateVerificationStage(long durationMs, int requestedPeriodUs) {
+        this.durationMs = durationMs;
+        this.requestedPeriodUs = requestedPeriodUs;
+    }
+
+    @Override
+    boolean appliesTo(Sensor sensor) {
+        return sensor.getReportingMode() == Sensor.REPORTING_MODE_CONTINUOUS && sensor.getMinDelay() > 0;
+    }
+
+    @Override
+    void run(SensorManager sensorManager, List<TestResult.Builder> results) throws InterruptedException {
+        List<IntervalCollector> collectors = new ArrayList<>();
+        long startTime = System.currentTimeMillis();
+
+        try {
+            for (TestResult.Builder result : results) {
+                IntervalCollector collector = new IntervalCollector(getPeriodFor(result.getSensor()));
+                if (sensorManager.registerListener(collector, result.getSensor(), collector.periodUs,
+                        SensorDispatcher.getHandler())) {
+                    collectors.add(collector);
+                } else {
+                    // No rate verdict; an empty interval set would read as a measurement
+                    android.util.Log.w("RateVerificationStage", "Failed to register " + result.getSensor().getName());
+                    collectors.add(null);
+                }
+            }
+
+            Thread.sleep(WARM_UP_NS / 1_000_000L + durationMs);
+        } finally {
+            for (IntervalCollector collector : collectors) {
+                if (collector != null) {
+                    sensorManager.unregisterListener(collector);
+                }
+            }
+        }
+
+        long elapsed = System.currentTimeMillis() - startTime;
+        for (int i = 0; i < results.size(); i++) {
+            TestResult.Builder result = results.get(i);
+            IntervalCollector collector = collectors.get(i);
+            if (collector != null) {
+                result.setRateStatistics(collector.buildStatistics());
+                attachLatency(result, collector.buildLatency());
+            }
+            result.setTestDuration(result.getTestDuration() + elapsed);
+        }
+    }
+
+    /**
+     * Clamps the requested period into the range the sensor declares
+     */
+    private int getPeriodFor(Sensor sensor) {
+        int periodUs = requestedPeriodUs > 0 ? requestedPeriodUs : sensor.getMinDelay();
+        periodUs = Math.max(periodUs, sensor.getMinDelay());
+        if (sensor.getMaxDelay() > 0) {
+            periodUs = Math.min(periodUs, sensor.getMaxDelay());
+        }
+        return periodUs;
+    }
+
+    private static class IntervalCollector implements SensorEventListener {
+        private final int periodUs;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final int[] histogram = new int[RateStatistics.JITTER_BUCKET_EDGES_PERCENT.length + 1];
+        private long firstTimestampNs = -1;
+        private long lastTimestampNs = -1;
+        private long count;
+        private double meanUs;
+        private double m2;
+        private long minUs = Long.MAX_VALUE;
+        private long maxUs = 0;
+
+        IntervalCollector(int periodUs) {
+            this.periodUs = periodUs;
+        }
+
+        @Override
+        public synchronized void onSensorChanged(SensorEvent event) {
+            long timestamp = event.timestamp;
+            latency.record(SystemClock.elapsedRealtimeNanos() - timestamp);
+            if (firstTimestampNs < 0) {
+                firstTimestampNs = timestamp;
+            }
+            if (timestamp - firstTimestampNs < WARM_UP_NS) {
+                lastTimestampNs = timestamp;
+                return;
+            }
+            if (lastTimestampNs >= 0) {
+                recordInterval((timestamp - lastTimestampNs) / 1000L);
+            }
+            lastTimestampNs = timestamp;
+        }
+
+        private void recordInterval(long intervalUs) {
+            count++;
+            double delta = intervalUs - meanUs;
+            meanUs += delta / count;
+            m2 += delta * (intervalUs - meanUs);
+            if (intervalUs < minUs) minUs = intervalUs;
+            if (intervalUs > maxUs) maxUs = intervalUs;
+
+            long deviationPercent = Math.abs(intervalUs - periodUs) * 100 / periodUs;
+            int bucket = 0;
+            while (bucket < RateStatistics.JITTER_BUCKET_EDGES_PERCENT.length
+                    && deviationPercent > RateStatistics.JITTER_BUCKET_EDGES_PERCENT[bucket]) {
+                bucket++;
+            }
+            histogram[bucket]++;
+        }
+
+        @Override
+        public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        }
+
+        synchronized LatencySummary buildLatency() {
+            return latency.toSummary();
+        }
+
+        synchronized RateStatistics buildStatistics() {
+            double jitterUs = count > 1 ? Math.sqrt(m2 / (count - 1)) : 0;
+            return new RateStatistics(periodUs, count, meanUs, jitterUs,
+                    count > 0 ? minUs : 0, maxUs, histogram.clone());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.senon;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.hardware.TriggerEvent;
+import android.hardware.TriggerEventListener;
+import android.os.SystemClock;
+
+import com.example.senon.model.DiagnosticsReport;
+import com.example.senon.utils.SensorDispatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On-demand check of sensor registration. Registers a listener for every
+ * given sensor, measuring how long registerListener takes and how long after
+ * the registration call the first event arrives, and releases all sensors
+ * afterwards. One-shot sensors cannot be registered as listeners; they are
+ * armed with requestTriggerSensor instead and are not waited for, since they
+ * only fire on a real-world event.
+ */
+public class SensorDiagnostics {
+
+    private static final long FIRST_EVENT_TIMEOUT_MS = 3000;
+
+    private final SensorManager sensorManager;
+
+    public SensorDiagnostics(SensorManager sensorManager) {
+        this.sensorManager = sensorManager;
+    }
+
+    /**
+     * Runs the diagnostics. Blocks for up to a few seconds, so call it off the
+     * main thread.
+     *
+     * @param sensors The sensors to check
+     * @return The report, with entries in the order of the given sensors
+     */
+    public DiagnosticsReport run(List<Sensor> sensors) throws InterruptedException {
+        long startTime = System.currentTimeMillis();
+        CountDownLatch firstEvents = new CountDownLatch(sensors.size());
+        List<Probe> probes = new ArrayList<>();
+
+        try {
+            for (Sensor sensor : sensors) {
+                Probe probe = new Probe(sensor, firstEvents);
+                probes.add(probe);
+                probe.register(sensorManager);
+                if (!probe.registered || probe.isOneShot()) {
+                    firstEvents.countDown();
+                }
+            }
+
+            // One-shot and on-change sensors may legitimately stay silent until the timeout
+            firstEvents.await(FIRST_EVENT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } finally {
+            for (Probe probe : probes) {
+                probe.unregister(sensorManager);
+            }
+        }
+
+        List<DiagnosticsReport.Entry> entries = new ArrayList<>();
+        for (Probe probe : probes) {
+            entries.add(probe.toEntry());
+        }
+        return new DiagnosticsReport(System.currentTimeMillis() - startTime, entries);
+    }
+
+    private static class Probe implements SensorEventListener {
+        private final Sensor sensor;
+        private final CountDownLatch firstEvents;
+        private boolean registered;
+        private String error;
+        private volatile long registrationStartNs;
+        private long registrationLatencyUs;
+        private volatile long firstEventLatencyUs = -1;
+        private final TriggerEventListener triggerListener = new TriggerEventListener() {
+            @Override
+            public void onTrigger(TriggerEvent event) {
+                // Not counted down; one-shot sensors are never waited for
+                firstEventLatencyUs = (SystemClock.elapsedRealtimeNanos() - registrationStartNs) / 1000;
+            }
+        };
+
+        Probe(Sensor sensor, CountDownLatch firstEvents) {
+            this.sensor = sensor;
+            this.firstEvents = firstEvents;
+        }
+
+        void register(SensorManager sensorManager) {
+            // Set before registering, as the first event can arrive before registerListener returns
+            registrationStartNs = SystemClock.elapsedRealtimeNanos();
+            try {
+                if (isOneShot()) {
+                    registered = sensorManager.requestTriggerSensor(triggerListener, sensor);
+                } else {
+                    registered = sensorManager.registerListener(this, sensor, SensorManager.SENSOR_DELAY_NORMAL,
+                            SensorDispatcher.getHandler());
+                }
+            } catch (SecurityException e) {
+                error = "Permission denied: " + e.getMessage();
+            } catch (Exception e) {
+                error = e.getMessage();
+            }
+            registrationLatencyUs = (SystemClock.elapsedRealtimeNanos() - registrationStartNs) / 1000;
+        }
+
+        void unregister(SensorManager sensorManager) {
+            if (isOneShot()) {
+                sensorManager.cancelTriggerSensor(triggerListener, sensor);
+            } else {
+                sensorManager.unregisterListener(this);
+            }
+        }
+
+        boolean isOneShot() {
+            return sensor.getReportingMode() == Sensor.REPORTING_MODE_ONE_SHOT;
+        }
+
+        @Override
+        public void onSensorChanged(SensorEvent event) {
+            if (firstEventLatencyUs < 0) {
+                firstEventLatencyUs = (SystemClock.elapsedRealtimeNanos() - registrationStartNs) / 1000;
+                firstEvents.countDown();
+            }
+        }
+
+        @Override
+        public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        }
+
+        DiagnosticsReport.Entry toEntry() {
+            return new DiagnosticsReport.Entry(sensor.getName(), sensor.getVendor(), sensor.getType(), registered,
+                    registrationLatencyUs, firstEventLatencyUs, error, isOneShot());
+        }
+    }
+}
@@ -1,22 +1,27 @@
 package com.example.senon;
 
+import android.app.AlertDialog;
 import android.content.Context;
 import android.hardware.Sensor;
-import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
+import android.text.InputType;
 import android.view.MenuItem;
 import android.view.View;
+import android.widget.EditText;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 
 import com.example.senon.databinding.ActivitySensorTestBinding;
+import com.example.senon.utils.FixedPointFormatter;
 import com.example.senon.utils.SensorIconMapper;
+import com.example.senon.utils.SensorStreamHub;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -25,16 +30,24 @@ import java.util.Locale;
 /**
  * Activity for testing individual sensors
  */
-public class SensorTestActivity extends AppCompatActivity implements SensorEventListener {
+public class SensorTestActivity extends AppCompatActivity implements SensorTestViewModel.DisplayListener {
+
+    private static final long STATS_REFRESH_INTERVAL_MS = 250;
+    private static final long NO_DATA_TIMEOUT_MS = 5000;
+    private static final int MAX_CUSTOM_PERIOD_US = 1_000_000;
 
     private ActivitySensorTestBinding binding;
     private SensorManager sensorManager;
     private Sensor currentSensor;
     private Handler uiHandler;
-    private boolean isTestRunning = false;
-    private long testStartTime;
-    private int sampleCount = 0;
-    private float[] lastValues;
+    // Subscription and statistics, kept across configuration changes
+    private SensorTestViewModel testViewModel;
+    private final Runnable noDataCheck = this::checkDataReceived;
+
+    // Main thread display state
+    private final FixedPointFormatter realTimeFormatter = new FixedPointFormatter(4);
+    private final FixedPointFormatter sampleCountFormatter = new FixedPointFormatter(0);
+    private long lastStatsRefreshMs;
 
     // Intent extras
     private int sensorType;
@@ -60,6 +73,11 @@ public class SensorTestActivity extends AppCompatActivity implements SensorEvent
 
         // Find and setup the sensor
         setupSensor();
+        setupRateSelector();
+
+        // Pick up a test that was running before a configuration change
+        testViewModel.attach(this);
+        restoreTestState();
     }
 
     private void getIntentExtras() {
@@ -71,6 +89,7 @@ public class SensorTestActivity extends AppCompatActivity implements SensorEvent
     private void initializeComponents() {
         sensorManager = (SensorManager) getSystemService(Context.SENSOR_SERVICE);
         uiHandler = new Handler(Looper.getMainLooper());
+        testViewModel = new ViewModelProvider(this).get(SensorTestViewModel.class);
     }
 
     private void setupToolbar() {
@@ -134,6 +153,92 @@ public class SensorTestActivity extends AppCompatActivity implements SensorEvent
         binding.textViewSensorSpecs.setText(specs.toString());
     }
 
+    /**
+     * Lets the user pick the sampling period of the next test. Custom periods
+     * are only offered for sensors with a minimum delay, which bounds them.
+     */
+    private void setupRateSelector() {
+        checkRateChip(testViewModel.getSamplingPeriodUs());
+        binding.chipRateCustom.setEnabled(currentSensor != null && currentSensor.getMinDelay() > 0);
+
+        binding.chipGroupSamplingRate.setOnCheckedStateChangeListener((group, checkedIds) -> {
+            if (checkedIds.isEmpty()) {
+                return;
+            }
+            int checkedId = checkedIds.get(0);
+            if (checkedId == R.id.chipRateNormal) {
+                testViewModel.setSamplingPeriodUs(SensorManager.SENSOR_DELAY_NORMAL);
+            } else if (checkedId == R.id.chipRateUi) {
+                testViewModel.setSamplingPeriodUs(SensorManager.SENSOR_DELAY_UI);
+            } else if (checkedId == R.id.chipRateGame) {
+                testViewModel.setSamplingPeriodUs(SensorManager.SENSOR_DELAY_GAME);
+            } else if (checkedId == R.id.chipRateFastest) {
+                testViewModel.setSamplingPeriodUs(SensorManager.SENSOR_DELAY_FASTEST);
+            }
+        });
+        binding.chipRateCustom.setOnClickListener(v -> showCustomRateDialog());
+    }
+
+    private void showCustomRateDialog() {
+        int minDelayUs = currentSensor.getMinDelay();
+        int maxDelayUs = currentSensor.getMaxDelay() > minDelayUs ? currentSensor.getMaxDelay() : MAX_CUSTOM_PERIOD_US;
+
+        EditText input = new EditText(this);
+        input.setInputType(InputType.TYPE_CLASS_NUMBER);
+        input.setHint(minDelayUs + " - " + maxDelayUs + " μs");
+
+        new AlertDialog.Builder(this)
+                .setTitle("Custom Sampling Period")
+                .setView(input)
+                .setPositiveButton("Apply", (dialog, which) -> {
+                    int periodUs;
+                    try {
+                        periodUs = Integer.parseInt(input.getText().toString().trim());
+                    } catch (NumberFormatException e) {
+                        checkRateChip(testViewModel.getSamplingPeriodUs());
+                        return;
+                    }
+                    // Faster than the minimum delay is not honored by the sensor
+                    periodUs = Math.max(minDelayUs, Math.min(maxDelayUs, periodUs));
+                    testViewModel.setSamplingPeriodUs(periodUs);
+                    checkRateChip(periodUs);
+                })
+                .setNegativeButton("Cancel", (dialog, which) -> checkRateChip(testViewModel.getSamplingPeriodUs()))
+                .setOnCancelListener(dialog -> checkRateChip(testViewModel.getSamplingPeriodUs()))
+                .show();
+    }
+
+    /**
+     * Selects the chip matching a sampling period, showing custom periods on the custom chip
+     */
+    private void checkRateChip(int periodUs) {
+        int chipId;
+        if (periodUs == SensorStreamHub.toPeriodUs(SensorManager.SENSOR_DELAY_NORMAL)) {
+            chipId = R.id.chipRateNormal;
+        } else if (periodUs == SensorStreamHub.toPeriodUs(SensorManager.SENSOR_DELAY_UI)) {
+            chipId = R.id.chipRateUi;
+        } else if (periodUs == SensorStreamHub.toPeriodUs(SensorManager.SENSOR_DELAY_GAME)) {
+            chipId = R.id.chipRateGame;
+        } else if (periodUs == SensorStreamHub.toPeriodUs(SensorManager.SENSOR_DELAY_FASTEST)) {
+            chipId = R.id.chipRateFastest;
+        } else {
+            chipId = R.id.chipRateCustom;
+        }
+        binding.chipRateCustom.setText(chipId == R.id.chipRateCustom
+                ? getString(R.string.rate_custom) + ": " + periodUs + " μs"
+                : getString(R.string.rate_custom));
+        binding.chipGroupSamplingRate.check(chipId);
+    }
+
+    private void setRateSelectorEnabled(boolean enabled) {
+        for (int i = 0; i < binding.chipGroupSamplingRate.getChildCount(); i++) {
+            binding.chipGroupSamplingRate.getChildAt(i).setEnabled(enabled);
+        }
+        if (enabled) {
+            binding.chipRateCustom.setEnabled(currentSensor != null && currentSensor.getMinDelay() > 0);
+        }
+    }
+
     private void startSensorTest() {
         if (currentSensor == null) {
             showError("No sensor available for testing");
@@ -150,62 +255,108 @@ public class SensorTestActivity extends AppCompatActivity implements SensorEvent
 
         android.util.Log.d("SensorTestActivity", "Found sensor: " + currentSensor.getName() +
                 " (Vendor: " + currentSensor.getVendor() + ", Version: " + currentSensor.getVersion() +
-                ", Max Range: " + currentSensor.getMaximumRange() + ", Resolution: " + currentSensor.getResolution() + ")");
+                ", Max Range: " + currentSensor.getMaximumRange() + ", Resolution: " + currentSensor.getResolution() +
+                ", Period: " + testViewModel.getSamplingPeriodUs() + "us)");
 
-        boolean registered = sensorManager.registerListener(this, currentSensor, SensorManager.SENSOR_DELAY_UI);
+        boolean registered = testViewModel.startTest(currentSensor);
         android.util.Log.d("SensorTestActivity", "Sensor registration result: " + registered);
 
         if (registered) {
-            isTestRunning = true;
-            testStartTime = System.currentTimeMillis();
-            sampleCount = 0;
-
-            // Update UI
-            binding.buttonStartTest.setEnabled(false);
-            binding.buttonStopTest.setEnabled(true);
-            binding.chipTestStatus.setText("TESTING");
-            binding.chipTestStatus.setChipBackgroundColorResource(android.R.color.holo_green_light);
-            binding.cardRealTimeData.setVisibility(View.VISIBLE);
-            binding.progressIndicator.setVisibility(View.VISIBLE);
-
-            // Update test info
-            SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
-            binding.textViewStartTime.setText("Started: " + sdf.format(new Date()));
+            showRunningState();
 
             Toast.makeText(this, "Sensor test started", Toast.LENGTH_SHORT).show();
             android.util.Log.d("SensorTestActivity", "Sensor test started successfully");
 
             // Set a timeout to check if we're receiving data
-            uiHandler.postDelayed(() -> {
-                if (isTestRunning && sampleCount == 0) {
-                    android.util.Log.w("SensorTestActivity", "No sensor data received after 5 seconds");
-                    binding.textViewRealTimeData.setText("Warning: No sensor data received. Try moving your device or check if the sensor is working properly.");
-                }
-            }, 5000);
+            uiHandler.postDelayed(noDataCheck, NO_DATA_TIMEOUT_MS);
         } else {
             android.util.Log.e("SensorTestActivity", "Failed to register sensor listener for: " + currentSensor.getName());
             showError("Failed to start sensor monitoring. The sensor might be in use by another app or there may be a system issue.");
         }
     }
 
-    private void stopSensorTest() {
-        if (sensorManager != null) {
-            sensorManager.unregisterListener(this);
-        }
+    /**
+     * Shows the controls and start time of a running test
+     */
+    private void showRunningState() {
+        binding.buttonStartTest.setEnabled(false);
+        binding.buttonStopTest.setEnabled(true);
+        binding.chipTestStatus.setText("TESTING");
+        binding.chipTestStatus.setChipBackgroundColorResource(android.R.color.holo_green_light);
+        binding.cardRealTimeData.setVisibility(View.VISIBLE);
+        binding.progressIndicator.setVisibility(View.VISIBLE);
+        setRateSelectorEnabled(false);
+        showTestInfo();
+    }
 
-        isTestRunning = false;
+    private void showTestInfo() {
+        binding.sparklineRealTimeData.setSamples(testViewModel.getRealTimeHistory());
+        SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
+        binding.textViewStartTime.setText("Started: " + sdf.format(new Date(testViewModel.getTestStartTime())));
+    }
 
-        // Update UI
+    /**
+     * Shows the controls and final statistics of a stopped test
+     */
+    private void showStoppedState() {
         binding.buttonStartTest.setEnabled(true);
         binding.buttonStopTest.setEnabled(false);
         binding.chipTestStatus.setText("STOPPED");
         binding.chipTestStatus.setChipBackgroundColorResource(android.R.color.holo_red_light);
         binding.progressIndicator.setVisibility(View.GONE);
+        setRateSelectorEnabled(true);
 
         // Calculate test duration
-        long duration = System.currentTimeMillis() - testStartTime;
-        binding.textViewDuration.setText("Duration: " + formatDuration(duration));
-        binding.textViewSampleCount.setText("Samples: " + sampleCount);
+        binding.textViewDuration.setText("Duration: " + formatDuration(testViewModel.getDuration()));
+        binding.textViewSampleCount.setText("Samples: " + testViewModel.getSampleCount());
+        showRateStatistics();
+    }
+
+    /**
+     * Rebuilds the screen from the retained test after a configuration change
+     */
+    private void restoreTestState() {
+        if (!testViewModel.hasTest()) {
+            return;
+        }
+
+        if (testViewModel.isTestRunning()) {
+            showRunningState();
+            if (testViewModel.getSampleCount() == 0) {
+                long remaining = NO_DATA_TIMEOUT_MS - testViewModel.getDuration();
+                uiHandler.postDelayed(noDataCheck, Math.max(0, remaining));
+            }
+        } else {
+            binding.cardRealTimeData.setVisibility(View.VISIBLE);
+            showTestInfo();
+            showStoppedState();
+        }
+
+        if (testViewModel.getDisplayValueCount() > 0) {
+            showRealTimeValues();
+        }
+        if (testViewModel.getSampleCount() > 0) {
+            binding.textViewLatency.setText(testViewModel.getLatencyHistogram().toSummary().getSummaryString());
+            showRateStatistics();
+        }
+        if (testViewModel.getAccuracy() != SensorTestViewModel.ACCURACY_UNKNOWN) {
+            onAccuracyChanged(testViewModel.getAccuracy());
+        }
+    }
+
+    private void checkDataReceived() {
+        if (testViewModel.isTestRunning() && testViewModel.getSampleCount() == 0) {
+            android.util.Log.w("SensorTestActivity", "No sensor data received after 5 seconds");
+            binding.textViewRealTimeData.setText("Warning: No sensor data received. Try moving your device or check if the sensor is working properly.");
+        }
+    }
+
+    private void stopSensorTest() {
+        testViewModel.stopTest();
+        uiHandler.removeCallbacks(noDataCheck);
+
+        // Update UI
+        showStoppedState();
 
         Toast.makeText(this, "Sensor test stopped", Toast.LENGTH_SHORT).show();
     }
@@ -222,57 +373,18 @@ public class SensorTestActivity extends AppCompatActivity implements SensorEvent
         binding.textViewDuration.setText("");
         binding.textViewSampleCount.setText("");
         binding.textViewAccuracy.setText("");
+        binding.textViewLatency.setText("--");
+        binding.textViewAchievedRate.setText("--");
+        binding.textViewDroppedFrames.setText("0");
 
-        sampleCount = 0;
-        lastValues = null;
+        testViewModel.resetTest();
+        binding.sparklineRealTimeData.onSamplesChanged();
 
         Toast.makeText(this, "Test reset", Toast.LENGTH_SHORT).show();
     }
 
     @Override
-    public void onSensorChanged(SensorEvent event) {
-        if (!isTestRunning || event == null || event.values == null) {
-            if (!isTestRunning) {
-                android.util.Log.d("SensorTestActivity", "Sensor data received but test not running");
-            }
-            if (event == null) {
-                android.util.Log.w("SensorTestActivity", "Received null sensor event");
-            }
-            if (event != null && event.values == null) {
-                android.util.Log.w("SensorTestActivity", "Received sensor event with null values");
-            }
-            return;
-        }
-
-        sampleCount++;
-        lastValues = event.values.clone();
-
-        // Log first few samples for debugging
-        if (sampleCount <= 3) {
-            android.util.Log.d("SensorTestActivity", "Sample " + sampleCount + " received: " +
-                    java.util.Arrays.toString(event.values));
-        }
-
-        // Format sensor values
-        StringBuilder valueBuilder = new StringBuilder();
-        for (int i = 0; i < event.values.length; i++) {
-            if (i > 0) valueBuilder.append("\n");
-            valueBuilder.append(String.format(Locale.getDefault(), "Axis %d: %.4f", i, event.values[i]));
-        }
-
-        // Update UI on main thread
-        uiHandler.post(() -> {
-            binding.textViewRealTimeData.setText(valueBuilder.toString());
-            binding.textViewSampleCount.setText("Samples: " + sampleCount);
-
-            // Update test duration
-            long duration = System.currentTimeMillis() - testStartTime;
-            binding.textViewDuration.setText("Duration: " + formatDuration(duration));
-        });
-    }
-
-    @Override
-    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+    public void onAccuracyChanged(int accuracy) {
         String accuracyText;
         switch (accuracy) {
             case SensorManager.SENSOR_STATUS_ACCURACY_HIGH:
@@ -292,7 +404,62 @@ public class SensorTestActivity extends AppCompatActivity implements SensorEvent
                 break;
         }
 
-        uiHandler.post(() -> binding.textViewAccuracy.setText("Accuracy: " + accuracyText));
+        binding.textViewAccuracy.setText("Accuracy: " + accuracyText);
+    }
+
+    /**
+     * Shows a frame of new values. Latency and duration are refreshed at a
+     * lower rate since their text is built with String.format.
+     */
+    @Override
+    public void onRealTimeData() {
+        showRealTimeValues();
+        binding.sparklineRealTimeData.onSamplesChanged();
+
+        long now = SystemClock.uptimeMillis();
+        if (now - lastStatsRefreshMs >= STATS_REFRESH_INTERVAL_MS) {
+            lastStatsRefreshMs = now;
+            binding.textViewLatency.setText(testViewModel.getLatencyHistogram().toSummary().getSummaryString());
+
+            // Update test duration
+            binding.textViewDuration.setText("Duration: " + formatDuration(testViewModel.getDuration()));
+            showRateStatistics();
+        }
+    }
+
+    /**
+     * Shows the achieved event rate against the requested one, and the
+     * display frames missed while values were pending
+     */
+    private void showRateStatistics() {
+        int periodUs = testViewModel.getSamplingPeriodUs();
+        String requested = periodUs > 0
+                ? String.format(Locale.getDefault(), "%.1f Hz", 1_000_000f / periodUs)
+                : "max";
+        float achievedHz = testViewModel.getAchievedRateHz();
+        String achieved = achievedHz > 0
+                ? String.format(Locale.getDefault(), "%.1f Hz", achievedHz)
+                : "--";
+        binding.textViewAchievedRate.setText(achieved + " of " + requested);
+        binding.textViewDroppedFrames.setText(String.valueOf(testViewModel.getDroppedFrames()));
+    }
+
+    /**
+     * Shows the latest values and sample count without allocating
+     */
+    private void showRealTimeValues() {
+        float[] values = testViewModel.getDisplayValues();
+        int count = testViewModel.getDisplayValueCount();
+
+        realTimeFormatter.reset();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) realTimeFormatter.append('\n');
+            realTimeFormatter.append("Axis ").append(i).append(": ").append(values[i]);
+        }
+        realTimeFormatter.applyTo(binding.textViewRealTimeData);
+
+        sampleCountFormatter.reset().append("Samples: ").append(testViewModel.getSampleCount());
+        sampleCountFormatter.applyTo(binding.textViewSampleCount);
     }
 
     private String formatDuration(long milliseconds) {
@@ -325,27 +492,26 @@ public class SensorTestActivity extends AppCompatActivity implements SensorEvent
     @Override
     protected void onPause() {
         super.onPause();
-        if (isTestRunning && sensorManager != null) {
-            sensorManager.unregisterListener(this);
+        // Keep streaming through a rotation; the ViewModel carries the test over
+        if (testViewModel.isTestRunning() && !isChangingConfigurations()) {
+            testViewModel.pause();
         }
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        if (isTestRunning && currentSensor != null && sensorManager != null) {
-            sensorManager.registerListener(this, currentSensor, SensorManager.SENSOR_DELAY_UI);
-        }
+        testViewModel.resume();
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (sensorManager != null) {
-            sensorManager.unregisterListener(this);
-        }
+        // The ViewModel stops the test once this screen is finished for good
+        testViewModel.detach();
+        uiHandler.removeCallbacks(noDataCheck);
         if (binding != null) {
             binding = null;
         }
     }
-}
\ No newline at end of file
+}
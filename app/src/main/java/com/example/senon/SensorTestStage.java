@@ -0,0 +1,44 @@
+package com.example.senon;
+
+import android.hardware.Sensor;
+import android.hardware.SensorManager;
+
+import com.example.senon.model.LatencySummary;
+import com.example.senon.model.TestResult;
+
+import java.util.List;
+
+/**
+ * An optional test that AutoSensorTester runs after a sensor passed its basic
+ * test. A stage runs for every sensor of a test group at once and adds its
+ * findings to the sensor's result.
+ */
+abstract class SensorTestStage {
+
+    /**
+     * @return true if this stage can run for the given sensor
+     */
+    abstract boolean appliesTo(Sensor sensor);
+
+    /**
+     * Runs the stage for all results at once and blocks until it has finished.
+     * Implementations must release every sensor before returning, including
+     * when interrupted.
+     *
+     * @param sensorManager The sensor manager to register with
+     * @param results       Builders of passed results, updated in place
+     */
+    abstract void run(SensorManager sensorManager, List<TestResult.Builder> results) throws InterruptedException;
+
+    /**
+     * Attaches the delivery latency measured by a stage, keeping an earlier
+     * stage's measurement when it covered more events
+     */
+    static void attachLatency(TestResult.Builder result, LatencySummary latency) {
+        LatencySummary existing = result.getLatency();
+        if (latency.getEventCount() > 0
+                && (existing == null || latency.getEventCount() > existing.getEventCount())) {
+            result.setLatency(latency);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.senon;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.SystemClock;
+
+import com.example.senon.model.TestResult;
+import com.example.senon.utils.LatencyHistogram;
+import com.example.senon.utils.SensorDispatcher;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Base class for the per-sensor test logic used by AutoSensorTester.
+ * Each sensor reporting mode gets its own strategy so that a verdict can be
+ * reached as soon as the sensor has proven itself, instead of every sensor
+ * waiting for a first event until a fixed timeout. Strategies record the
+ * delivery latency of every event they receive, so each result carries
+ * latency even when no deep test stage runs or the deadline passes.
+ */
+abstract class SensorTestStrategy {
+
+    protected final int index;
+    protected final Sensor sensor;
+    protected final long startTime;
+    private final AtomicBoolean verdictReported = new AtomicBoolean(false);
+    // Recorded on the sensor dispatch thread
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private BlockingQueue<SensorTestStrategy> verdicts;
+
+    protected SensorTestStrategy(int index, Sensor sensor) {
+        this.index = index;
+        this.sensor = sensor;
+        this.startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Picks the strategy matching the sensor's reporting mode
+     *
+     * @param index  The position of the sensor in the tested list
+     * @param sensor The sensor to test
+     * @return A new strategy instance for this sensor
+     */
+    static SensorTestStrategy forSensor(int index, Sensor sensor) {
+        switch (sensor.getReportingMode()) {
+            case Sensor.REPORTING_MODE_ONE_SHOT:
+                return new OneShotTestStrategy(index, sensor);
+            case Sensor.REPORTING_MODE_ON_CHANGE:
+            case Sensor.REPORTING_MODE_SPECIAL_TRIGGER:
+                return new OnChangeTestStrategy(index, sensor);
+            case Sensor.REPORTING_MODE_CONTINUOUS:
+            default:
+                return new ContinuousTestStrategy(index, sensor);
+        }
+    }
+
+    /**
+     * Starts the test. Once a verdict is possible the strategy offers itself to
+     * the given queue.
+     *
+     * @param sensorManager The sensor manager to register with
+     * @param verdicts      Queue receiving strategies that reached a verdict
+     * @return null when the test started, otherwise the failed test result
+     */
+    final TestResult start(SensorManager sensorManager, BlockingQueue<SensorTestStrategy> verdicts) {
+        this.verdicts = verdicts;
+        try {
+            String error = register(sensorManager);
+            if (error != null) {
+                return createFailedResult(error);
+            }
+            return null;
+        } catch (SecurityException e) {
+            return createFailedResult("Permission denied: " + e.getMessage() + " - Check sensor permissions");
+        } catch (Exception e) {
+            return createFailedResult("Test error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the test and releases the sensor
+     */
+    final void stop(SensorManager sensorManager) {
+        try {
+            unregister(sensorManager);
+        } catch (Exception unregisterException) {
+            // Log but don't fail the test for unregister issues
+        }
+    }
+
+    /**
+     * @return The time after which the sensor is judged without a verdict
+     */
+    long getDeadline() {
+        return startTime + getTimeoutMs();
+    }
+
+    protected long getElapsedTime() {
+        return System.currentTimeMillis() - startTime;
+    }
+
+    /**
+     * Records the delivery latency of an event
+     *
+     * @param eventTimestampNs The event's timestamp, in the elapsedRealtimeNanos time base
+     */
+    protected final synchronized void recordLatency(long eventTimestampNs) {
+        // Called on the dispatch thread; results are built on the worker thread
+        latency.record(SystemClock.elapsedRealtimeNanos() - eventTimestampNs);
+    }
+
+    /**
+     * Builds the result after {@link #reportVerdict()} was called, with the
+     * latency of the events received so far
+     */
+    final TestResult buildVerdictResult() {
+        return withLatency(buildResult());
+    }
+
+    /**
+     * Builds the result of a strategy whose deadline passed, with the latency
+     * of the events it received before that
+     */
+    final TestResult buildResultOnTimeout() {
+        return withLatency(buildTimeoutResult());
+    }
+
+    private synchronized TestResult withLatency(TestResult result) {
+        if (latency.getCount() == 0) {
+            return result;
+        }
+        return result.buildUpon().setLatency(latency.toSummary()).build();
+    }
+
+    protected final void reportVerdict() {
+        if (verdictReported.compareAndSet(false, true)) {
+            verdicts.offer(this);
+        }
+    }
+
+    /**
+     * Registers a listener, retrying with faster delays when the sensor refuses
+     * the slower ones
+     *
+     * @return null on success, otherwise an error message
+     */
+    protected String registerWithFallback(SensorManager sensorManager, SensorEventListener listener) {
+        // Try multiple registration attempts with different delays
+        boolean registered = false;
+        String lastError = "";
+
+        // First attempt with SENSOR_DELAY_NORMAL
+        registered = sensorManager.registerListener(listener, sensor, SensorManager.SENSOR_DELAY_NORMAL,
+                    SensorDispatcher.getHandler());
+
+        if (!registered) {
+            // Second attempt with SENSOR_DELAY_UI (faster)
+            registered = sensorManager.registerListener(listener, sensor, SensorManager.SENSOR_DELAY_UI,
+                    SensorDispatcher.getHandler());
+            lastError = "Failed with NORMAL delay, ";
+        }
+
+        if (!registered) {
+            // Third attempt with SENSOR_DELAY_GAME (even faster)
+            registered = sensorManager.registerListener(listener, sensor, SensorManager.SENSOR_DELAY_GAME,
+                    SensorDispatcher.getHandler());
+            lastError += "Failed with UI delay, ";
+        }
+
+        if (!registered) {
+            return lastError + "Failed to register sensor listener - sensor may not be available or accessible";
+        }
+        return null;
+    }
+
+    protected TestResult createFailedResult(String errorMessage) {
+        return new TestResult(sensor, false, errorMessage, null, getElapsedTime(), 0);
+    }
+
+    /**
+     * Registers with the sensor
+     *
+     * @return null on success, otherwise an error message
+     */
+    protected abstract String register(SensorManager sensorManager);
+
+    protected abstract void unregister(SensorManager sensorManager);
+
+    /**
+     * @return How long to wait for a verdict before building the timeout result
+     */
+    protected abstract long getTimeoutMs();
+
+    /**
+     * Builds the result after {@link #reportVerdict()} was called
+     */
+    abstract TestResult buildResult();
+
+    /**
+     * Builds the result when no verdict was reached in time
+     */
+    abstract TestResult buildTimeoutResult();
+}
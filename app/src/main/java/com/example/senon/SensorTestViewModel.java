@@ -0,0 +1,395 @@
+package com.example.senon;
+
+import android.app.Application;
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.hardware.display.DisplayManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.view.Choreographer;
+import android.view.Display;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+
+import com.example.senon.utils.LatencyHistogram;
+import com.example.senon.utils.SampleRingBuffer;
+import com.example.senon.utils.SensorStreamHub;
+
+/**
+ * State of a single sensor test, kept across configuration changes.
+ *
+ * The stream subscription, sample count, timing, latency statistics and value
+ * history live here instead of in SensorTestActivity, so a rotation keeps the
+ * sensor streaming and the statistics accumulating.
+ *
+ * Capture and display are decoupled: events are received on the sensor
+ * dispatch thread at the selected sampling period, which may be the fastest
+ * the hardware supports, and only update counters and a latest-values slot.
+ * The main thread takes that slot once per display frame, appends it to the
+ * history and, when an activity is attached, shows it. The achieved event
+ * rate and the display frames missed while values were pending are tracked
+ * alongside.
+ */
+public class SensorTestViewModel extends AndroidViewModel implements SensorEventListener {
+
+    /**
+     * Shows the test state. Called on the main thread while attached.
+     */
+    public interface DisplayListener {
+        /**
+         * New values are available through {@link #getDisplayValues()}, at most once per frame
+         */
+        void onRealTimeData();
+
+        void onAccuracyChanged(int accuracy);
+    }
+
+    public static final int ACCURACY_UNKNOWN = -1;
+
+    private static final long RATE_WINDOW_NS = 1_000_000_000L;
+
+    private final SensorStreamHub streamHub;
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+    private final Choreographer choreographer;
+    private final Choreographer.FrameCallback realTimeFrameCallback = this::onRealTimeFrame;
+    private SensorStreamHub.Subscription subscription;
+    private Sensor sensor;
+    private DisplayListener displayListener;
+    private final long frameIntervalNs;
+    private int samplingPeriodUs = SensorStreamHub.toPeriodUs(SensorManager.SENSOR_DELAY_UI);
+
+    // Test state, written on the sensor dispatch thread
+    private volatile boolean isTestRunning = false;
+    private volatile long testStartTime;
+    private volatile long testStopTime;
+    private volatile int sampleCount = 0;
+    private volatile int accuracy = ACCURACY_UNKNOWN;
+    private final LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+    // Achieved rate over the last window of sensor timestamps, guarded by the values lock
+    private long rateWindowStartNs;
+    private int rateWindowCount;
+    private volatile float achievedRateHz;
+
+    // Latest event values, written on the sensor dispatch thread and taken once per frame
+    private final Object valuesLock = new Object();
+    private float[] latestValues = new float[16];
+    private int latestValueCount;
+    private boolean frameScheduled;
+    private long frameRequestedNanos;
+
+    // Main thread state
+    private int droppedFrames;
+    private float[] displayValues = new float[16];
+    private int displayValueCount;
+    private final SampleRingBuffer realTimeHistory = new SampleRingBuffer(240, 3);
+
+    public SensorTestViewModel(@NonNull Application application) {
+        super(application);
+        streamHub = SensorStreamHub.getInstance(application);
+        // Created on the main thread with the ViewModel, so frame callbacks run there
+        choreographer = Choreographer.getInstance();
+
+        DisplayManager displayManager = (DisplayManager) application.getSystemService(Context.DISPLAY_SERVICE);
+        Display display = displayManager != null ? displayManager.getDisplay(Display.DEFAULT_DISPLAY) : null;
+        float refreshRate = display != null && display.getRefreshRate() > 0 ? display.getRefreshRate() : 60f;
+        frameIntervalNs = (long) (1_000_000_000L / refreshRate);
+    }
+
+    public void attach(DisplayListener displayListener) {
+        this.displayListener = displayListener;
+    }
+
+    public void detach() {
+        displayListener = null;
+    }
+
+    /**
+     * Starts a new test, clearing the statistics of the previous one
+     *
+     * @return Whether the sensor could be registered
+     */
+    public boolean startTest(Sensor sensor) {
+        this.sensor = sensor;
+        latencyHistogram.reset();
+        realTimeHistory.clear();
+        displayValueCount = 0;
+        sampleCount = 0;
+        accuracy = ACCURACY_UNKNOWN;
+        resetRateStatistics();
+        testStartTime = System.currentTimeMillis();
+        testStopTime = 0;
+        // Set before subscribing so the first events are counted
+        isTestRunning = true;
+
+        // Shares the list screen's registration if it is still running
+        if (!subscribe()) {
+            isTestRunning = false;
+            testStartTime = 0;
+            return false;
+        }
+        return true;
+    }
+
+    public void stopTest() {
+        unsubscribe();
+        if (isTestRunning) {
+            testStopTime = System.currentTimeMillis();
+        }
+        isTestRunning = false;
+        cancelRealTimeFrame();
+    }
+
+    /**
+     * Stops the test and forgets its results
+     */
+    public void resetTest() {
+        stopTest();
+        sampleCount = 0;
+        testStartTime = 0;
+        testStopTime = 0;
+        accuracy = ACCURACY_UNKNOWN;
+        displayValueCount = 0;
+        resetRateStatistics();
+        latencyHistogram.reset();
+        realTimeHistory.clear();
+    }
+
+    private void resetRateStatistics() {
+        synchronized (valuesLock) {
+            rateWindowStartNs = 0;
+            rateWindowCount = 0;
+        }
+        achievedRateHz = 0;
+        droppedFrames = 0;
+    }
+
+    /**
+     * Sets the sampling period used by the next test
+     *
+     * @param samplingPeriodUs Sampling period in microseconds, or one of the
+     *                         SensorManager.SENSOR_DELAY_* constants
+     */
+    public void setSamplingPeriodUs(int samplingPeriodUs) {
+        this.samplingPeriodUs = SensorStreamHub.toPeriodUs(samplingPeriodUs);
+    }
+
+    /**
+     * @return Requested sampling period in microseconds; 0 for as fast as possible
+     */
+    public int getSamplingPeriodUs() {
+        return samplingPeriodUs;
+    }
+
+    /**
+     * Unregisters while the screen is in the background, keeping the results
+     */
+    public void pause() {
+        unsubscribe();
+    }
+
+    public void resume() {
+        if (isTestRunning && sensor != null) {
+            subscribe();
+        }
+    }
+
+    public boolean isTestRunning() {
+        return isTestRunning;
+    }
+
+    /**
+     * @return Whether a test was started and not reset since
+     */
+    public boolean hasTest() {
+        return testStartTime != 0;
+    }
+
+    public long getTestStartTime() {
+        return testStartTime;
+    }
+
+    /**
+     * @return Test duration so far, or of the stopped test
+     */
+    public long getDuration() {
+        long end = isTestRunning || testStopTime == 0 ? System.currentTimeMillis() : testStopTime;
+        return end - testStartTime;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    public int getAccuracy() {
+        return accuracy;
+    }
+
+    /**
+     * @return Event rate measured from sensor timestamps over the last second, 0 until known
+     */
+    public float getAchievedRateHz() {
+        return achievedRateHz;
+    }
+
+    /**
+     * @return Display frames that passed while new values were waiting to be shown
+     */
+    public int getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    public LatencyHistogram getLatencyHistogram() {
+        return latencyHistogram;
+    }
+
+    public SampleRingBuffer getRealTimeHistory() {
+        return realTimeHistory;
+    }
+
+    /**
+     * @return Latest values taken on the main thread; valid up to {@link #getDisplayValueCount()}
+     */
+    public float[] getDisplayValues() {
+        return displayValues;
+    }
+
+    public int getDisplayValueCount() {
+        return displayValueCount;
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        if (!isTestRunning || event == null || event.values == null) {
+            if (!isTestRunning) {
+                android.util.Log.d("SensorTestViewModel", "Sensor data received but test not running");
+            }
+            if (event == null) {
+                android.util.Log.w("SensorTestViewModel", "Received null sensor event");
+            }
+            if (event != null && event.values == null) {
+                android.util.Log.w("SensorTestViewModel", "Received sensor event with null values");
+            }
+            return;
+        }
+
+        // Runs on the sensor dispatch thread; only view updates are posted to the main thread
+        Trace.beginSection("SensorTestViewModel.onSensorChanged");
+        try {
+            latencyHistogram.record(SystemClock.elapsedRealtimeNanos() - event.timestamp);
+            sampleCount++;
+
+            // Log first few samples for debugging
+            if (sampleCount <= 3) {
+                android.util.Log.d("SensorTestViewModel", "Sample " + sampleCount + " received: " +
+                        java.util.Arrays.toString(event.values));
+            }
+
+            // Keep only the latest values; they are taken on the next frame
+            boolean schedule = false;
+            synchronized (valuesLock) {
+                updateAchievedRate(event.timestamp);
+                if (latestValues.length < event.values.length) {
+                    latestValues = new float[event.values.length];
+                }
+                System.arraycopy(event.values, 0, latestValues, 0, event.values.length);
+                latestValueCount = event.values.length;
+                if (!frameScheduled) {
+                    frameScheduled = true;
+                    frameRequestedNanos = System.nanoTime();
+                    schedule = true;
+                }
+            }
+            if (schedule) {
+                choreographer.postFrameCallback(realTimeFrameCallback);
+            }
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        this.accuracy = accuracy;
+        uiHandler.post(() -> {
+            if (displayListener != null) {
+                displayListener.onAccuracyChanged(accuracy);
+            }
+        });
+    }
+
+    /**
+     * Measures the event rate from sensor timestamps, so batched delivery
+     * does not distort it. Called with the values lock held.
+     */
+    private void updateAchievedRate(long timestampNs) {
+        if (rateWindowCount == 0) {
+            rateWindowStartNs = timestampNs;
+        }
+        rateWindowCount++;
+        long elapsedNs = timestampNs - rateWindowStartNs;
+        if (elapsedNs >= RATE_WINDOW_NS) {
+            achievedRateHz = (rateWindowCount - 1) * 1e9f / elapsedNs;
+            rateWindowStartNs = timestampNs;
+            rateWindowCount = 1;
+        }
+    }
+
+    private void onRealTimeFrame(long frameTimeNanos) {
+        int count;
+        synchronized (valuesLock) {
+            frameScheduled = false;
+            // Every vsync between the request and this frame is a frame the values missed
+            long lateNs = frameTimeNanos - frameRequestedNanos;
+            if (lateNs > frameIntervalNs) {
+                droppedFrames += (int) (lateNs / frameIntervalNs);
+            }
+            count = latestValueCount;
+            if (displayValues.length < count) {
+                displayValues = new float[count];
+            }
+            System.arraycopy(latestValues, 0, displayValues, 0, count);
+        }
+        displayValueCount = count;
+
+        // The history keeps growing while no activity is attached
+        realTimeHistory.add(displayValues, count);
+        if (displayListener != null) {
+            displayListener.onRealTimeData();
+        }
+    }
+
+    private void cancelRealTimeFrame() {
+        synchronized (valuesLock) {
+            frameScheduled = false;
+        }
+        choreographer.removeFrameCallback(realTimeFrameCallback);
+    }
+
+    private boolean subscribe() {
+        if (subscription == null) {
+            subscription = streamHub.subscribe(sensor, samplingPeriodUs, this);
+        }
+        return subscription != null;
+    }
+
+    private void unsubscribe() {
+        if (subscription != null) {
+            subscription.close();
+            subscription = null;
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        stopTest();
+        uiHandler.removeCallbacksAndMessages(null);
+        displayListener = null;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.senon;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.SystemClock;
+
+import com.example.senon.model.LatencySummary;
+import com.example.senon.model.SensorStatistics;
+import com.example.senon.model.TestResult;
+import com.example.senon.utils.RunningStatistics;
+import com.example.senon.utils.SampleRingBuffer;
+import com.example.senon.utils.LatencyHistogram;
+import com.example.senon.utils.SensorDispatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Deep test stage that streams samples at SENSOR_DELAY_FASTEST for a fixed
+ * duration and attaches per-axis mean, variance, min/max, percentiles and drift
+ * to the result. All buffers are allocated before registration so the event
+ * path does not allocate.
+ */
+class StatisticsTestStage extends SensorTestStage {
+
+    static final long DEFAULT_DURATION_MS = 3000;
+    private static final int MAX_AXES = 6;
+    private static final int MAX_SAMPLES = 8192;
+    private static final int FALLBACK_MIN_DELAY_US = 1000;
+
+    private final long durationMs;
+
+    StatisticsTestStage(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    @Override
+    boolean appliesTo(Sensor sensor) {
+        return sensor.getReportingMode() == Sensor.REPORTING_MODE_CONTINUOUS;
+    }
+
+    @Override
+    void run(SensorManager sensorManager, List<TestResult.Builder> results) throws InterruptedException {
+        List<SampleCollector> collectors = new ArrayList<>();
+        long startTime = System.currentTimeMillis();
+
+        try {
+            for (TestResult.Builder result : results) {
+                SampleCollector collector = new SampleCollector(getCapacity(result.getSensor()));
+                if (sensorManager.registerListener(collector, result.getSensor(), SensorManager.SENSOR_DELAY_FASTEST,
+                        SensorDispatcher.getHandler())) {
+                    collectors.add(collector);
+                } else {
+                    // No statistics rather than statistics of zero samples
+                    android.util.Log.w("StatisticsTestStage", "Failed to register " + result.getSensor().getName());
+                    collectors.add(null);
+                }
+            }
+
+            Thread.sleep(durationMs);
+        } finally {
+            for (SampleCollector collector : collectors) {
+                if (collector != null) {
+                    sensorManager.unregisterListener(collector);
+                }
+            }
+        }
+
+        long elapsed = System.currentTimeMillis() - startTime;
+        for (int i = 0; i < results.size(); i++) {
+            TestResult.Builder result = results.get(i);
+            SampleCollector collector = collectors.get(i);
+            if (collector != null) {
+                result.setStatistics(collector.buildStatistics(getMeasuredAxisCount(result.getSensor())));
+                attachLatency(result, collector.buildLatency());
+            }
+            result.setTestDuration(result.getTestDuration() + elapsed);
+        }
+    }
+
+    private int getCapacity(Sensor sensor) {
+        int minDelayUs = sensor.getMinDelay() > 0 ? sensor.getMinDelay() : FALLBACK_MIN_DELAY_US;
+        long expectedSamples = durationMs * 1000 / minDelayUs;
+        return (int) Math.min(MAX_SAMPLES, expectedSamples * 5 / 4 + 16);
+    }
+
+    /**
+     * Values beyond the measurement axes hold bias estimates, accuracy or
+     * flags that are normally constant, so they are not checked for being stuck
+     */
+    private static int getMeasuredAxisCount(Sensor sensor) {
+        switch (sensor.getType()) {
+            case Sensor.TYPE_ROTATION_VECTOR:
+            case Sensor.TYPE_GAME_ROTATION_VECTOR:
+            case Sensor.TYPE_GEOMAGNETIC_ROTATION_VECTOR:
+                // Quaternion x, y, z and w; values[4] is the heading accuracy
+                return 4;
+            case Sensor.TYPE_POSE_6DOF:
+                // Rotation quaternion and translation; the rest are deltas and a sequence number
+                return 7;
+            default:
+                // Uncalibrated and limited-axes sensors append bias or axis flags after x, y and z
+                return 3;
+        }
+    }
+
+    private static float percentile(float[] sorted, int count, double fraction) {
+        int rank = (int) Math.ceil(fraction * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, rank))];
+    }
+
+    private static class SampleCollector implements SensorEventListener {
+        private final SampleRingBuffer window;
+        private final RunningStatistics running = new RunningStatistics(MAX_AXES);
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        SampleCollector(int capacity) {
+            window = new SampleRingBuffer(capacity, MAX_AXES);
+        }
+
+        @Override
+        public synchronized void onSensorChanged(SensorEvent event) {
+            latency.record(SystemClock.elapsedRealtimeNanos() - event.timestamp);
+            window.add(event.values);
+            running.add(event.values, event.timestamp);
+        }
+
+        @Override
+        public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        }
+
+        synchronized LatencySummary buildLatency() {
+            return latency.toSummary();
+        }
+
+        /**
+         * Mean, variance, extremes and drift cover every sample; percentiles
+         * cover the samples still retained in the window.
+         */
+        synchronized SensorStatistics buildStatistics(int measuredAxisCount) {
+            int axes = running.getAxisCount();
+            if (running.getCount() == 0 || axes == 0) {
+                return null;
+            }
+
+            double[] mean = new double[axes];
+            double[] stdDev = new double[axes];
+            double[] drift = new double[axes];
+            float[] min = new float[axes];
+            float[] max = new float[axes];
+            float[] p5 = new float[axes];
+            float[] p50 = new float[axes];
+            float[] p95 = new float[axes];
+            float[] sorted = new float[window.size()];
+
+            for (int axis = 0; axis < axes; axis++) {
+                mean[axis] = running.getMean(axis);
+                stdDev[axis] = Math.sqrt(running.getVariance(axis));
+                drift[axis] = running.getDrift(axis);
+                min[axis] = running.getMin(axis);
+                max[axis] = running.getMax(axis);
+
+                int count = window.copyAxis(axis, sorted);
+                Arrays.sort(sorted, 0, count);
+                p5[axis] = percentile(sorted, count, 0.05);
+                p50[axis] = percentile(sorted, count, 0.50);
+                p95[axis] = percentile(sorted, count, 0.95);
+            }
+
+            return new SensorStatistics(running.getCount(), running.getSpanNs(), mean, stdDev, drift,
+                    min, max, p5, p50, p95, Math.min(measuredAxisCount, axes));
+        }
+    }
+}
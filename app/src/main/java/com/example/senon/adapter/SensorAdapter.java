@@ -1,55 +1,190 @@
 package com.example.senon.adapter;
 
 import android.content.Context;
+import android.hardware.Sensor;
+import android.util.SparseIntArray;
+import android.view.Choreographer;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.senon.R;
 import com.example.senon.model.SensorItem;
 import com.example.senon.utils.SensorIconMapper;
+import com.example.senon.utils.SensorSearchIndex;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
- * Adapter for displaying sensor items in a RecyclerView
+ * Adapter for displaying sensor items in a RecyclerView.
+ *
+ * Filter, search and sort changes submit a new list to an AsyncListDiffer,
+ * which diffs it against the shown list on a background thread and then
+ * dispatches only the resulting moves, inserts and removals. Items are keyed
+ * by their sensor key, which also serves as stable id.
+ *
+ * While sensors are monitored, a frame callback samples their latest values
+ * into the row histories at a fixed interval, so the sparklines plot time
+ * rather than value changes.
  */
 public class SensorAdapter extends RecyclerView.Adapter<SensorViewHolder> {
+
+    /**
+     * Partial change payloads, so that per-event updates only rebind the
+     * affected view instead of the whole row
+     */
+    public enum Payload {
+        VALUE,
+        HISTORY,
+        STATUS,
+        PROGRESS
+    }
+
+    // Rows are the same mutable SensorItem instances across lists; live value and
+    // status changes are dispatched separately as payloads
+    private static final DiffUtil.ItemCallback<SensorItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<SensorItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull SensorItem oldItem, @NonNull SensorItem newItem) {
+            return oldItem.getSensorKey() == newItem.getSensorKey();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull SensorItem oldItem, @NonNull SensorItem newItem) {
+            return oldItem == newItem;
+        }
+    };
+
+    // Spacing of sparkline samples; the 120 sample history covers six seconds
+    private static final long HISTORY_INTERVAL_NS = 50_000_000L;
+
     private final Context context;
     private final List<SensorItem> sensorItems;
-    private final List<SensorItem> filteredSensorItems;
+    private final AsyncListDiffer<SensorItem> differ;
+    // Sensor key to position in the shown list, for constant time per-event updates
+    private final SparseIntArray positionByKey = new SparseIntArray();
     private SensorViewHolder.OnSensorItemClickListener onItemClickListener;
+    // Bound once per holder; forwards to whichever listener is currently set
+    private final SensorViewHolder.OnSensorItemClickListener clickForwarder = (sensorItem, position) -> {
+        if (onItemClickListener != null) {
+            onItemClickListener.onSensorItemClick(sensorItem, position);
+        }
+    };
+    private final Choreographer.FrameCallback historyFrameCallback = this::sampleHistory;
+    private boolean historySampling;
+    private long lastHistorySampleNs;
+    // Told after a new shown list was applied and the position index rebuilt
+    private Runnable onShownListChangedListener;
+    private Predicate<Sensor> liveSensorFilter;
     private boolean showOnlyActiveSensors = false;
     private SensorIconMapper.SensorCategory filterCategory = null;
+    private String searchQuery = null;
+    // Built over sensorItems in sorted order whenever that list changes
+    private SensorSearchIndex searchIndex = new SensorSearchIndex(new ArrayList<>());
 
     public SensorAdapter(Context context) {
         this.context = context;
         this.sensorItems = new ArrayList<>();
-        this.filteredSensorItems = new ArrayList<>();
+        this.differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+        this.differ.addListListener((previousList, currentList) -> {
+            rebuildPositionIndex(currentList);
+            if (onShownListChangedListener != null) {
+                onShownListChangedListener.run();
+            }
+        });
+        setHasStableIds(true);
+    }
+
+    /**
+     * Sets a listener run on the main thread whenever filtering, search or
+     * sorting changed which sensors are shown at which positions
+     */
+    public void setOnShownListChangedListener(Runnable listener) {
+        this.onShownListChangedListener = listener;
+    }
+
+    /**
+     * Sets which monitored sensors still stream live values. Rows of the
+     * others keep their history instead of repeating their last value.
+     *
+     * @param filter Tests whether a sensor is streaming, or null to sample every active row
+     */
+    public void setLiveSensorFilter(Predicate<Sensor> filter) {
+        this.liveSensorFilter = filter;
+    }
+
+    /**
+     * Finds the adapter position of a sensor
+     *
+     * @param sensor The sensor to look up
+     * @return The position, or -1 if the sensor is not shown
+     */
+    public int getPosition(Sensor sensor) {
+        return positionByKey.get(SensorItem.keyOf(sensor), -1);
     }
 
     @NonNull
     @Override
     public SensorViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(context).inflate(R.layout.item_sensor, parent, false);
-        return new SensorViewHolder(view);
+        return new SensorViewHolder(view, clickForwarder);
     }
 
     @Override
     public void onBindViewHolder(@NonNull SensorViewHolder holder, int position) {
-        SensorItem sensorItem = filteredSensorItems.get(position);
-        holder.bind(sensorItem, onItemClickListener);
+        SensorItem sensorItem = getShownItems().get(position);
+        holder.bind(sensorItem);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull SensorViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+
+        SensorItem sensorItem = getShownItems().get(position);
+        // Indexed loop; this runs for every coalesced sensor update
+        for (int i = 0; i < payloads.size(); i++) {
+            Object payload = payloads.get(i);
+            if (payload == Payload.VALUE) {
+                holder.bindCurrentValue(sensorItem);
+            } else if (payload == Payload.HISTORY) {
+                holder.bindHistory(sensorItem);
+            } else if (payload == Payload.STATUS) {
+                holder.bindStatus(sensorItem);
+            } else if (payload == Payload.PROGRESS) {
+                holder.showTestProgress(sensorItem.isTestInProgress());
+            } else {
+                holder.bind(sensorItem);
+                return;
+            }
+        }
     }
 
     @Override
     public int getItemCount() {
-        return filteredSensorItems.size();
+        return getShownItems().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getShownItems().get(position).getSensorKey();
+    }
+
+    /**
+     * @return The list currently shown, which lags submitted lists until their diff is dispatched
+     */
+    private List<SensorItem> getShownItems() {
+        return differ.getCurrentList();
     }
 
     /**
@@ -62,7 +197,6 @@ public class SensorAdapter extends RecyclerView.Adapter<SensorViewHolder> {
         this.sensorItems.addAll(sensorItems);
         sortSensorItems();
         applyFilters();
-        notifyDataSetChanged();
     }
 
     /**
@@ -74,7 +208,6 @@ public class SensorAdapter extends RecyclerView.Adapter<SensorViewHolder> {
         sensorItems.add(sensorItem);
         sortSensorItems();
         applyFilters();
-        notifyDataSetChanged();
     }
 
     /**
@@ -84,60 +217,127 @@ public class SensorAdapter extends RecyclerView.Adapter<SensorViewHolder> {
      * @param sensorItem The updated sensor item
      */
     public void updateSensorItem(int position, SensorItem sensorItem) {
-        if (position >= 0 && position < filteredSensorItems.size()) {
-            filteredSensorItems.set(position, sensorItem);
-            notifyItemChanged(position);
+        List<SensorItem> shownItems = getShownItems();
+        if (position >= 0 && position < shownItems.size()) {
+            int index = sensorItems.indexOf(shownItems.get(position));
+            if (index >= 0) {
+                // A new instance differs in content, so the diff rebinds the row
+                sensorItems.set(index, sensorItem);
+                sortSensorItems();
+                applyFilters();
+            }
         }
     }
 
     /**
-     * Updates a sensor item by sensor type
+     * Updates the displayed value of a sensor
      *
-     * @param sensorType The sensor type to update
-     * @param newValue   The new value to set
+     * @param sensor   The sensor to update
+     * @param newValue The new value to set
      */
-    public void updateSensorValue(int sensorType, String newValue) {
-        for (int i = 0; i < filteredSensorItems.size(); i++) {
-            SensorItem item = filteredSensorItems.get(i);
-            if (item.getSensorType() == sensorType) {
-                item.setCurrentValue(newValue);
-                notifyItemChanged(i);
+    public void updateSensorValue(Sensor sensor, String newValue) {
+        int position = getPosition(sensor);
+        if (position >= 0) {
+            getShownItems().get(position).setCurrentValue(newValue);
+            notifyItemChanged(position, Payload.VALUE);
+        }
+    }
+
+    /**
+     * Updates the live values of a sensor
+     *
+     * @param sensor The sensor to update
+     * @param values The latest event values
+     * @param count  Number of valid entries in values
+     */
+    public void updateSensorValues(Sensor sensor, float[] values, int count) {
+        int position = getPosition(sensor);
+        if (position >= 0) {
+            getShownItems().get(position).setCurrentValues(values, count);
+            notifyItemChanged(position, Payload.VALUE);
+        }
+    }
+
+    /**
+     * Starts sampling the monitored sensors into their row histories. Stops
+     * by itself once no sensor is monitored.
+     */
+    public void startHistorySampling() {
+        if (!historySampling) {
+            historySampling = true;
+            Choreographer.getInstance().postFrameCallback(historyFrameCallback);
+        }
+    }
+
+    public void stopHistorySampling() {
+        historySampling = false;
+        Choreographer.getInstance().removeFrameCallback(historyFrameCallback);
+    }
+
+    private void sampleHistory(long frameTimeNanos) {
+        boolean due = frameTimeNanos - lastHistorySampleNs >= HISTORY_INTERVAL_NS;
+        if (due) {
+            lastHistorySampleNs = frameTimeNanos;
+        }
+
+        boolean anyActive = false;
+        for (int i = 0; i < sensorItems.size(); i++) {
+            if (sensorItems.get(i).isActive()) {
+                anyActive = true;
                 break;
             }
         }
+        if (!anyActive) {
+            historySampling = false;
+            return;
+        }
+
+        if (due) {
+            // Only shown rows with a live stream receive new values; indexed loop, this runs every interval
+            List<SensorItem> shownItems = getShownItems();
+            Predicate<Sensor> filter = liveSensorFilter;
+            for (int position = 0; position < shownItems.size(); position++) {
+                SensorItem sensorItem = shownItems.get(position);
+                if (sensorItem.isActive() && (filter == null || filter.test(sensorItem.getSensor()))
+                        && sensorItem.appendHistorySample()) {
+                    notifyItemChanged(position, Payload.HISTORY);
+                }
+            }
+        }
+        // Sleep until the next sample is due instead of waking on every frame
+        long remainingNs = lastHistorySampleNs + HISTORY_INTERVAL_NS - frameTimeNanos;
+        Choreographer.getInstance().postFrameCallbackDelayed(historyFrameCallback,
+                Math.max(0, (remainingNs + 999_999) / 1_000_000));
     }
 
     /**
      * Updates the active status of a sensor
      *
-     * @param sensorType The sensor type to update
-     * @param isActive   The new active status
+     * @param sensor   The sensor to update
+     * @param isActive The new active status
      */
-    public void updateSensorStatus(int sensorType, boolean isActive) {
-        for (int i = 0; i < filteredSensorItems.size(); i++) {
-            SensorItem item = filteredSensorItems.get(i);
-            if (item.getSensorType() == sensorType) {
-                item.setActive(isActive);
-                notifyItemChanged(i);
-                break;
-            }
+    public void updateSensorStatus(Sensor sensor, boolean isActive) {
+        int position = getPosition(sensor);
+        if (position >= 0) {
+            getShownItems().get(position).setActive(isActive);
+            notifyItemChanged(position, Payload.STATUS);
+        }
+        if (isActive) {
+            startHistorySampling();
         }
     }
 
     /**
      * Shows test progress for a specific sensor
      *
-     * @param sensorType   The sensor type being tested
+     * @param sensor       The sensor being tested
      * @param showProgress Whether to show progress
      */
-    public void showSensorTestProgress(int sensorType, boolean showProgress) {
-        for (int i = 0; i < filteredSensorItems.size(); i++) {
-            SensorItem item = filteredSensorItems.get(i);
-            if (item.getSensorType() == sensorType) {
-                // Update the item and notify change
-                notifyItemChanged(i);
-                break;
-            }
+    public void showSensorTestProgress(Sensor sensor, boolean showProgress) {
+        int position = getPosition(sensor);
+        if (position >= 0) {
+            getShownItems().get(position).setTestInProgress(showProgress);
+            notifyItemChanged(position, Payload.PROGRESS);
         }
     }
 
@@ -146,8 +346,8 @@ public class SensorAdapter extends RecyclerView.Adapter<SensorViewHolder> {
      */
     public void clearSensorItems() {
         sensorItems.clear();
-        filteredSensorItems.clear();
-        notifyDataSetChanged();
+        searchIndex = new SensorSearchIndex(sensorItems);
+        differ.submitList(null);
     }
 
     /**
@@ -157,8 +357,9 @@ public class SensorAdapter extends RecyclerView.Adapter<SensorViewHolder> {
      * @return The sensor item at the position
      */
     public SensorItem getSensorItem(int position) {
-        if (position >= 0 && position < filteredSensorItems.size()) {
-            return filteredSensorItems.get(position);
+        List<SensorItem> shownItems = getShownItems();
+        if (position >= 0 && position < shownItems.size()) {
+            return shownItems.get(position);
         }
         return null;
     }
@@ -178,7 +379,7 @@ public class SensorAdapter extends RecyclerView.Adapter<SensorViewHolder> {
      * @return List of filtered sensor items
      */
     public List<SensorItem> getFilteredSensorItems() {
-        return new ArrayList<>(filteredSensorItems);
+        return new ArrayList<>(getShownItems());
     }
 
     /**
@@ -198,7 +399,6 @@ public class SensorAdapter extends RecyclerView.Adapter<SensorViewHolder> {
     public void filterByActiveStatus(boolean showOnlyActive) {
         this.showOnlyActiveSensors = showOnlyActive;
         applyFilters();
-        notifyDataSetChanged();
     }
 
     /**
@@ -209,16 +409,18 @@ public class SensorAdapter extends RecyclerView.Adapter<SensorViewHolder> {
     public void filterByCategory(SensorIconMapper.SensorCategory category) {
         this.filterCategory = category;
         applyFilters();
-        notifyDataSetChanged();
     }
 
     /**
-     * Applies current filters to the sensor list
+     * Applies current filters and search query to the sensor list and submits
+     * the result for diffing
      */
     private void applyFilters() {
-        filteredSensorItems.clear();
+        List<SensorItem> filteredItems = new ArrayList<>();
+        boolean searching = searchIndex.setQuery(searchQuery);
 
-        for (SensorItem item : sensorItems) {
+        for (int i = 0; i < sensorItems.size(); i++) {
+            SensorItem item = sensorItems.get(i);
             boolean includeItem = true;
 
             // Apply active status filter
@@ -235,71 +437,61 @@ public class SensorAdapter extends RecyclerView.Adapter<SensorViewHolder> {
                 }
             }
 
+            // Apply search query
+            if (searching && !searchIndex.matches(i)) {
+                includeItem = false;
+            }
+
             if (includeItem) {
-                filteredSensorItems.add(item);
+                filteredItems.add(item);
             }
         }
+        differ.submitList(filteredItems);
     }
 
     /**
-     * Sorts sensor items by display priority and name
+     * Re-indexes the sensor positions once a new list is shown
+     */
+    private void rebuildPositionIndex(List<SensorItem> shownItems) {
+        positionByKey.clear();
+        for (int i = 0; i < shownItems.size(); i++) {
+            positionByKey.put(shownItems.get(i).getSensorKey(), i);
+        }
+    }
+
+    /**
+     * Sorts sensor items by display priority and name, and rebuilds the search
+     * index for the new order
      */
     private void sortSensorItems() {
         Collections.sort(sensorItems, new Comparator<SensorItem>() {
             @Override
             public int compare(SensorItem o1, SensorItem o2) {
                 // First sort by priority (lower number = higher priority)
-                int priority1 = SensorIconMapper.getDisplayPriority(o1.getSensorType());
-                int priority2 = SensorIconMapper.getDisplayPriority(o2.getSensorType());
+                int priority1 = o1.getDisplayPriority();
+                int priority2 = o2.getDisplayPriority();
 
                 if (priority1 != priority2) {
                     return Integer.compare(priority1, priority2);
                 }
 
-                // Then sort by name
-                return o1.getSensorName().compareToIgnoreCase(o2.getSensorName());
+                // Then sort by the precomputed lowercase name
+                return o1.getSortName().compareTo(o2.getSortName());
             }
         });
+        searchIndex = new SensorSearchIndex(sensorItems);
     }
 
     /**
-     * Searches for sensors by name or type
+     * Searches for sensors by name, vendor, type or category, combined with the
+     * current filters. Matches prefixes, substrings and abbreviations such as
+     * "accl".
      *
      * @param query The search query
      */
     public void search(String query) {
-        filteredSensorItems.clear();
-
-        if (query == null || query.trim().isEmpty()) {
-            applyFilters();
-        } else {
-            String lowerQuery = query.toLowerCase().trim();
-            for (SensorItem item : sensorItems) {
-                if (item.getSensorName().toLowerCase().contains(lowerQuery) ||
-                        item.getSensorTypeString().toLowerCase().contains(lowerQuery) ||
-                        item.getSensorVendor().toLowerCase().contains(lowerQuery)) {
-
-                    // Apply other filters
-                    boolean includeItem = true;
-                    if (showOnlyActiveSensors && !item.isActive()) {
-                        includeItem = false;
-                    }
-                    if (filterCategory != null) {
-                        SensorIconMapper.SensorCategory itemCategory =
-                                SensorIconMapper.getSensorCategory(item.getSensorType());
-                        if (itemCategory != filterCategory) {
-                            includeItem = false;
-                        }
-                    }
-
-                    if (includeItem) {
-                        filteredSensorItems.add(item);
-                    }
-                }
-            }
-        }
-
-        notifyDataSetChanged();
+        searchQuery = query;
+        applyFilters();
     }
 
     /**
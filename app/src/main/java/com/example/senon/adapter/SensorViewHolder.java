@@ -9,6 +9,9 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.senon.R;
 import com.example.senon.model.SensorItem;
+import com.example.senon.utils.FixedPointFormatter;
+import com.example.senon.utils.SampleRingBuffer;
+import com.example.senon.widget.SparklineView;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.progressindicator.CircularProgressIndicator;
 
@@ -23,8 +26,16 @@ public class SensorViewHolder extends RecyclerView.ViewHolder {
     private final Chip chipStatus;
     private final TextView textViewCurrentValue;
     private final CircularProgressIndicator progressIndicatorTest;
+    private final SparklineView sparklineValues;
+    private final FixedPointFormatter valueFormatter = new FixedPointFormatter(2);
 
-    public SensorViewHolder(@NonNull View itemView) {
+    private SensorItem boundItem;
+
+    /**
+     * @param itemView      The row view
+     * @param clickListener Click listener, set once for the lifetime of the holder
+     */
+    public SensorViewHolder(@NonNull View itemView, OnSensorItemClickListener clickListener) {
         super(itemView);
 
         // Initialize views
@@ -35,15 +46,25 @@ public class SensorViewHolder extends RecyclerView.ViewHolder {
         chipStatus = itemView.findViewById(R.id.chipStatus);
         textViewCurrentValue = itemView.findViewById(R.id.textViewCurrentValue);
         progressIndicatorTest = itemView.findViewById(R.id.progressIndicatorTest);
+        sparklineValues = itemView.findViewById(R.id.sparklineValues);
+
+        // Set click listener
+        itemView.setOnClickListener(v -> {
+            int position = getBindingAdapterPosition();
+            if (clickListener != null && boundItem != null && position != RecyclerView.NO_POSITION) {
+                clickListener.onSensorItemClick(boundItem, position);
+            }
+        });
     }
 
     /**
      * Binds sensor data to the views
      *
-     * @param sensorItem          The sensor item to display
-     * @param onItemClickListener Click listener for the item
+     * @param sensorItem The sensor item to display
      */
-    public void bind(SensorItem sensorItem, OnSensorItemClickListener onItemClickListener) {
+    public void bind(SensorItem sensorItem) {
+        boundItem = sensorItem;
+
         // Set sensor icon
         imageViewSensorIcon.setImageResource(sensorItem.getIconResId());
 
@@ -57,17 +78,20 @@ public class SensorViewHolder extends RecyclerView.ViewHolder {
         textViewSensorVendor.setText(sensorItem.getSensorVendor());
 
         // Set current value
-        textViewCurrentValue.setText(sensorItem.getCurrentValue());
+        bindCurrentValue(sensorItem);
 
         // Set status
-        updateStatus(sensorItem.isActive());
+        bindStatus(sensorItem);
+    }
 
-        // Set click listener
-        itemView.setOnClickListener(v -> {
-            if (onItemClickListener != null) {
-                onItemClickListener.onSensorItemClick(sensorItem, getAdapterPosition());
-            }
-        });
+    /**
+     * Updates the status chip and test progress from the item
+     *
+     * @param sensorItem The sensor item holding the status
+     */
+    public void bindStatus(SensorItem sensorItem) {
+        updateStatus(sensorItem.isActive());
+        showTestProgress(sensorItem.isTestInProgress());
     }
 
     /**
@@ -96,6 +120,32 @@ public class SensorViewHolder extends RecyclerView.ViewHolder {
         textViewCurrentValue.setText(value);
     }
 
+    /**
+     * Updates the current value display from the item, formatting live values
+     * into the holder's own buffer
+     *
+     * @param sensorItem The sensor item holding the value
+     */
+    public void bindCurrentValue(SensorItem sensorItem) {
+        if (sensorItem.hasCurrentValues()) {
+            sensorItem.appendCurrentValues(valueFormatter.reset());
+            valueFormatter.applyTo(textViewCurrentValue);
+        } else {
+            textViewCurrentValue.setText(sensorItem.getCurrentValue());
+        }
+
+        bindHistory(sensorItem);
+    }
+
+    /**
+     * Binds the recent values, drawn as a rolling plot
+     */
+    public void bindHistory(SensorItem sensorItem) {
+        SampleRingBuffer history = sensorItem.getHistory();
+        sparklineValues.setSamples(history);
+        sparklineValues.setVisibility(history != null ? View.VISIBLE : View.GONE);
+    }
+
     /**
      * Shows or hides the test progress indicator
      *
@@ -117,11 +167,12 @@ public class SensorViewHolder extends RecyclerView.ViewHolder {
      * @param sensorItem The updated sensor item
      */
     public void updateSensorItem(SensorItem sensorItem) {
+        boundItem = sensorItem;
         textViewSensorName.setText(sensorItem.getSensorName());
         textViewSensorType.setText(sensorItem.getSensorTypeString());
         textViewSensorVendor.setText(sensorItem.getSensorVendor());
-        textViewCurrentValue.setText(sensorItem.getCurrentValue());
-        updateStatus(sensorItem.isActive());
+        bindCurrentValue(sensorItem);
+        bindStatus(sensorItem);
         imageViewSensorIcon.setImageResource(sensorItem.getIconResId());
     }
 
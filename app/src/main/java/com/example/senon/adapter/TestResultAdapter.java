@@ -60,6 +60,7 @@ public class TestResultAdapter extends RecyclerView.Adapter<TestResultAdapter.Te
         private TextView textViewSampleData;
         private TextView textViewErrorMessage;
         private TextView textViewAccuracy;
+        private TextView textViewStatistics;
         private View layoutErrorDetails;
         private View layoutSuccessDetails;
 
@@ -74,6 +75,7 @@ public class TestResultAdapter extends RecyclerView.Adapter<TestResultAdapter.Te
             textViewSampleData = itemView.findViewById(R.id.textViewSampleData);
             textViewErrorMessage = itemView.findViewById(R.id.textViewErrorMessage);
             textViewAccuracy = itemView.findViewById(R.id.textViewAccuracy);
+            textViewStatistics = itemView.findViewById(R.id.textViewStatistics);
             layoutErrorDetails = itemView.findViewById(R.id.layoutErrorDetails);
             layoutSuccessDetails = itemView.findViewById(R.id.layoutSuccessDetails);
         }
@@ -91,9 +93,13 @@ public class TestResultAdapter extends RecyclerView.Adapter<TestResultAdapter.Te
             // Set status
             if (result.isWorking()) {
                 // Success state
-                textViewTestStatus.setText("PASS");
-                textViewTestStatus.setTextColor(ContextCompat.getColor(itemView.getContext(), android.R.color.holo_green_dark));
-                textViewTestStatus.setCompoundDrawablesWithIntrinsicBounds(R.drawable.ic_check_circle, 0, 0, 0);
+                textViewTestStatus.setText(result.getVerdict());
+                textViewTestStatus.setTextColor(ContextCompat.getColor(itemView.getContext(), result.isArmedOnly()
+                        ? android.R.color.holo_orange_dark
+                        : android.R.color.holo_green_dark));
+                textViewTestStatus.setCompoundDrawablesWithIntrinsicBounds(result.isArmedOnly()
+                        ? R.drawable.ic_schedule
+                        : R.drawable.ic_check_circle, 0, 0, 0);
 
                 // Show success details
                 layoutSuccessDetails.setVisibility(View.VISIBLE);
@@ -109,6 +115,34 @@ public class TestResultAdapter extends RecyclerView.Adapter<TestResultAdapter.Te
                 // Set accuracy
                 textViewAccuracy.setText("Accuracy: " + result.getAccuracyString());
 
+                // Set the findings of the optional test stages
+                StringBuilder stageSummary = new StringBuilder();
+                if (result.hasStatistics()) {
+                    stageSummary.append(result.getStatistics().getSummaryString());
+                }
+                if (result.hasRateStatistics()) {
+                    if (stageSummary.length() > 0) stageSummary.append("\n");
+                    stageSummary.append(result.getRateStatistics().getSummaryString());
+                }
+                if (result.hasBatchingStatistics()) {
+                    if (stageSummary.length() > 0) stageSummary.append("\n");
+                    stageSummary.append(result.getBatchingStatistics().getSummaryString());
+                }
+                if (result.hasDirectChannelStatistics()) {
+                    if (stageSummary.length() > 0) stageSummary.append("\n");
+                    stageSummary.append(result.getDirectChannelStatistics().getSummaryString());
+                }
+                if (result.hasLatency()) {
+                    if (stageSummary.length() > 0) stageSummary.append("\n");
+                    stageSummary.append(result.getLatency().getSummaryString());
+                }
+                if (stageSummary.length() > 0) {
+                    textViewStatistics.setText(stageSummary.toString());
+                    textViewStatistics.setVisibility(View.VISIBLE);
+                } else {
+                    textViewStatistics.setVisibility(View.GONE);
+                }
+
             } else {
                 // Failure state
                 textViewTestStatus.setText("FAIL");
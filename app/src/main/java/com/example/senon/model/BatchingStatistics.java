@@ -0,0 +1,143 @@
+package com.example.senon.model;
+
+import java.io.Serializable;
+import java.util.Locale;
+
+/**
+ * Hardware FIFO batching behaviour measured by the batching test stage
+ */
+public class BatchingStatistics implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // Delivering at least this fraction of the expected batch counts as meeting the FIFO capacity
+    private static final double CAPACITY_TOLERANCE = 0.9;
+
+    private final int fifoReservedEventCount;
+    private final int fifoMaxEventCount;
+    private final int samplingPeriodUs;
+    private final int maxReportLatencyUs;
+    private final int expectedBatchSize;
+    private final int burstCount;
+    private final int largestBurst;
+    private final int flushedEvents;
+    private final double flushThroughputHz;
+    private final long flushLatencyUs;
+    private final boolean eventDriven;
+
+    /**
+     * @param eventDriven Whether the sensor only reports on changes or triggers,
+     *                    so the events produced while filling depend on what
+     *                    happened rather than on the sampling period
+     */
+    public BatchingStatistics(int fifoReservedEventCount, int fifoMaxEventCount, int samplingPeriodUs,
+                              int maxReportLatencyUs, int expectedBatchSize, int burstCount, int largestBurst,
+                              int flushedEvents, double flushThroughputHz, long flushLatencyUs,
+                              boolean eventDriven) {
+        this.fifoReservedEventCount = fifoReservedEventCount;
+        this.fifoMaxEventCount = fifoMaxEventCount;
+        this.samplingPeriodUs = samplingPeriodUs;
+        this.maxReportLatencyUs = maxReportLatencyUs;
+        this.expectedBatchSize = expectedBatchSize;
+        this.burstCount = burstCount;
+        this.largestBurst = largestBurst;
+        this.flushedEvents = flushedEvents;
+        this.flushThroughputHz = flushThroughputHz;
+        this.flushLatencyUs = flushLatencyUs;
+        this.eventDriven = eventDriven;
+    }
+
+    // Getters
+    public int getFifoReservedEventCount() {
+        return fifoReservedEventCount;
+    }
+
+    public int getFifoMaxEventCount() {
+        return fifoMaxEventCount;
+    }
+
+    public int getSamplingPeriodUs() {
+        return samplingPeriodUs;
+    }
+
+    public int getMaxReportLatencyUs() {
+        return maxReportLatencyUs;
+    }
+
+    /**
+     * @return The events the FIFO should hold after filling, limited by the
+     * reserved capacity and the events generated while filling
+     */
+    public int getExpectedBatchSize() {
+        return expectedBatchSize;
+    }
+
+    public int getBurstCount() {
+        return burstCount;
+    }
+
+    public int getLargestBurst() {
+        return largestBurst;
+    }
+
+    public int getFlushedEvents() {
+        return flushedEvents;
+    }
+
+    public double getFlushThroughputHz() {
+        return flushThroughputHz;
+    }
+
+    /**
+     * @return Time from SensorManager.flush() to onFlushCompleted, or -1 if the
+     * flush never completed
+     */
+    public long getFlushLatencyUs() {
+        return flushLatencyUs;
+    }
+
+    // Utility methods
+    public boolean isFlushCompleted() {
+        return flushLatencyUs >= 0;
+    }
+
+    public boolean isEventDriven() {
+        return eventDriven;
+    }
+
+    /**
+     * @return Whether the batch reached the expected size. Always true for
+     * event-driven sensors, whose batch size says nothing about the FIFO.
+     */
+    public boolean meetsDeclaredCapacity() {
+        if (eventDriven) {
+            return true;
+        }
+        return Math.max(largestBurst, flushedEvents) >= expectedBatchSize * CAPACITY_TOLERANCE;
+    }
+
+    public String getSummaryString() {
+        String flush = isFlushCompleted()
+                ? String.format(Locale.getDefault(), "%.1f ms", flushLatencyUs / 1000.0)
+                : "not completed";
+        String batch = eventDriven
+                ? String.format(Locale.getDefault(), "batch %d (event-driven, not checked)",
+                        Math.max(largestBurst, flushedEvents))
+                : String.format(Locale.getDefault(), "batch %d/%d expected%s",
+                        Math.max(largestBurst, flushedEvents), expectedBatchSize,
+                        meetsDeclaredCapacity() ? "" : " (SHORT)");
+        return String.format(Locale.getDefault(),
+                "FIFO %d reserved/%d max, %s\nBursts %d, flushed %d at %.0f Hz, flush %s",
+                fifoReservedEventCount, fifoMaxEventCount, batch, burstCount, flushedEvents, flushThroughputHz, flush);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchingStatistics{" +
+                "fifoReserved=" + fifoReservedEventCount +
+                ", fifoMax=" + fifoMaxEventCount +
+                ", largestBurst=" + largestBurst +
+                ", flushedEvents=" + flushedEvents +
+                ", flushLatencyUs=" + flushLatencyUs +
+                '}';
+    }
+}
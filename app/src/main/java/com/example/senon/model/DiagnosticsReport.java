@@ -0,0 +1,147 @@
+package com.example.senon.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Structured result of an on-demand sensor diagnostics run
+ */
+public class DiagnosticsReport implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long timestamp;
+    private final long durationMs;
+    private final List<Entry> entries;
+
+    public DiagnosticsReport(long durationMs, List<Entry> entries) {
+        this.timestamp = System.currentTimeMillis();
+        this.durationMs = durationMs;
+        this.entries = new ArrayList<>(entries);
+    }
+
+    // Getters
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    // Utility methods
+    public int getRegisteredCount() {
+        int count = 0;
+        for (Entry entry : entries) {
+            if (entry.isRegistered()) count++;
+        }
+        return count;
+    }
+
+    public int getRespondingCount() {
+        int count = 0;
+        for (Entry entry : entries) {
+            if (entry.hasFirstEvent()) count++;
+        }
+        return count;
+    }
+
+    public String getReportText() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.getDefault(), "%d sensors, %d registered, %d delivered events (%d ms)\n",
+                entries.size(), getRegisteredCount(), getRespondingCount(), durationMs));
+        for (Entry entry : entries) {
+            report.append("\n").append(entry.getSensorName()).append("\n  ");
+            if (!entry.isRegistered()) {
+                report.append("Registration FAILED");
+                if (entry.getError() != null) {
+                    report.append(": ").append(entry.getError());
+                }
+            } else {
+                report.append(String.format(Locale.getDefault(), "%s %.2f ms, first event %s",
+                        entry.isOneShot() ? "Armed trigger" : "Register",
+                        entry.getRegistrationLatencyUs() / 1000.0,
+                        entry.hasFirstEvent()
+                                ? String.format(Locale.getDefault(), "%.1f ms", entry.getFirstEventLatencyUs() / 1000.0)
+                                : entry.isOneShot() ? "not triggered" : "none"));
+            }
+            report.append("\n");
+        }
+        return report.toString();
+    }
+
+    /**
+     * Diagnostics of a single sensor
+     */
+    public static class Entry implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String sensorName;
+        private final String sensorVendor;
+        private final int sensorType;
+        private final boolean registered;
+        private final long registrationLatencyUs;
+        private final long firstEventLatencyUs;
+        private final String error;
+        private final boolean oneShot;
+
+        /**
+         * @param registrationLatencyUs Time spent in registerListener, or requestTriggerSensor for one-shot sensors
+         * @param firstEventLatencyUs   Time from the registration call to the first event, or -1 if none arrived
+         * @param oneShot               Whether the sensor was armed as a trigger sensor rather than registered
+         */
+        public Entry(String sensorName, String sensorVendor, int sensorType, boolean registered,
+                     long registrationLatencyUs, long firstEventLatencyUs, String error, boolean oneShot) {
+            this.sensorName = sensorName;
+            this.sensorVendor = sensorVendor;
+            this.sensorType = sensorType;
+            this.registered = registered;
+            this.registrationLatencyUs = registrationLatencyUs;
+            this.firstEventLatencyUs = firstEventLatencyUs;
+            this.error = error;
+            this.oneShot = oneShot;
+        }
+
+        public String getSensorName() {
+            return sensorName;
+        }
+
+        public String getSensorVendor() {
+            return sensorVendor;
+        }
+
+        public int getSensorType() {
+            return sensorType;
+        }
+
+        public boolean isRegistered() {
+            return registered;
+        }
+
+        public long getRegistrationLatencyUs() {
+            return registrationLatencyUs;
+        }
+
+        public long getFirstEventLatencyUs() {
+            return firstEventLatencyUs;
+        }
+
+        public boolean hasFirstEvent() {
+            return firstEventLatencyUs >= 0;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public boolean isOneShot() {
+            return oneShot;
+        }
+    }
+}
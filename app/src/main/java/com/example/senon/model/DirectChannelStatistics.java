@@ -0,0 +1,73 @@
+package com.example.senon.model;
+
+import java.io.Serializable;
+import java.util.Locale;
+
+/**
+ * Result of capturing a sensor through a direct report channel
+ */
+public class DirectChannelStatistics implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int rateLevel;
+    private final long sampleCount;
+    private final long droppedCount;
+    private final long spanNs;
+
+    public DirectChannelStatistics(int rateLevel, long sampleCount, long droppedCount, long spanNs) {
+        this.rateLevel = rateLevel;
+        this.sampleCount = sampleCount;
+        this.droppedCount = droppedCount;
+        this.spanNs = spanNs;
+    }
+
+    // Getters
+    public int getRateLevel() {
+        return rateLevel;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public long getSpanNs() {
+        return spanNs;
+    }
+
+    // Utility methods
+    public double getAchievedRateHz() {
+        return sampleCount > 1 && spanNs > 0 ? (sampleCount - 1) * 1e9 / spanNs : 0;
+    }
+
+    public String getRateLevelName() {
+        switch (rateLevel) {
+            case android.hardware.SensorDirectChannel.RATE_NORMAL:
+                return "NORMAL";
+            case android.hardware.SensorDirectChannel.RATE_FAST:
+                return "FAST";
+            case android.hardware.SensorDirectChannel.RATE_VERY_FAST:
+                return "VERY_FAST";
+            default:
+                return "STOP";
+        }
+    }
+
+    public String getSummaryString() {
+        return String.format(Locale.getDefault(), "Direct %s: %d samples at %.1f Hz, %d dropped",
+                getRateLevelName(), sampleCount, getAchievedRateHz(), droppedCount);
+    }
+
+    @Override
+    public String toString() {
+        return "DirectChannelStatistics{" +
+                "rateLevel=" + rateLevel +
+                ", sampleCount=" + sampleCount +
+                ", droppedCount=" + droppedCount +
+                ", spanNs=" + spanNs +
+                '}';
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.senon.model;
+
+import java.io.Serializable;
+import java.util.Locale;
+
+/**
+ * Percentiles of the delay between a sensor event's timestamp and its delivery
+ * to the app
+ */
+public class LatencySummary implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long eventCount;
+    private final long p50Us;
+    private final long p90Us;
+    private final long p99Us;
+    private final long maxUs;
+
+    public LatencySummary(long eventCount, long p50Us, long p90Us, long p99Us, long maxUs) {
+        this.eventCount = eventCount;
+        this.p50Us = p50Us;
+        this.p90Us = p90Us;
+        this.p99Us = p99Us;
+        this.maxUs = maxUs;
+    }
+
+    // Getters
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    public long getP50Us() {
+        return p50Us;
+    }
+
+    public long getP90Us() {
+        return p90Us;
+    }
+
+    public long getP99Us() {
+        return p99Us;
+    }
+
+    public long getMaxUs() {
+        return maxUs;
+    }
+
+    public String getSummaryString() {
+        return String.format(Locale.getDefault(), "Latency p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms",
+                p50Us / 1000.0, p90Us / 1000.0, p99Us / 1000.0, maxUs / 1000.0);
+    }
+
+    @Override
+    public String toString() {
+        return "LatencySummary{" +
+                "eventCount=" + eventCount +
+                ", p50Us=" + p50Us +
+                ", p99Us=" + p99Us +
+                ", maxUs=" + maxUs +
+                '}';
+    }
+}
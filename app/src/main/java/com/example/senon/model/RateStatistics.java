@@ -0,0 +1,114 @@
+package com.example.senon.model;
+
+import java.io.Serializable;
+import java.util.Locale;
+
+/**
+ * Delivered sample rate and inter-event jitter measured by the rate
+ * verification stage
+ */
+public class RateStatistics implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Upper edges of the jitter histogram buckets, as a percentage of the
+     * requested period. The last bucket collects everything above.
+     */
+    public static final int[] JITTER_BUCKET_EDGES_PERCENT = {5, 10, 25, 50, 100};
+
+    // Delivering at least this fraction of the requested rate counts as meeting it
+    private static final double RATE_TOLERANCE = 0.9;
+
+    private final int requestedPeriodUs;
+    private final long intervalCount;
+    private final double meanIntervalUs;
+    private final double jitterUs;
+    private final long minIntervalUs;
+    private final long maxIntervalUs;
+    private final int[] jitterHistogram;
+
+    public RateStatistics(int requestedPeriodUs, long intervalCount, double meanIntervalUs, double jitterUs,
+                          long minIntervalUs, long maxIntervalUs, int[] jitterHistogram) {
+        this.requestedPeriodUs = requestedPeriodUs;
+        this.intervalCount = intervalCount;
+        this.meanIntervalUs = meanIntervalUs;
+        this.jitterUs = jitterUs;
+        this.minIntervalUs = minIntervalUs;
+        this.maxIntervalUs = maxIntervalUs;
+        this.jitterHistogram = jitterHistogram;
+    }
+
+    // Getters
+    public int getRequestedPeriodUs() {
+        return requestedPeriodUs;
+    }
+
+    public long getIntervalCount() {
+        return intervalCount;
+    }
+
+    public double getMeanIntervalUs() {
+        return meanIntervalUs;
+    }
+
+    public double getJitterUs() {
+        return jitterUs;
+    }
+
+    public long getMinIntervalUs() {
+        return minIntervalUs;
+    }
+
+    public long getMaxIntervalUs() {
+        return maxIntervalUs;
+    }
+
+    public int[] getJitterHistogram() {
+        return jitterHistogram.clone();
+    }
+
+    // Utility methods
+    public double getRequestedRateHz() {
+        return requestedPeriodUs > 0 ? 1e6 / requestedPeriodUs : 0;
+    }
+
+    public double getAchievedRateHz() {
+        return meanIntervalUs > 0 ? 1e6 / meanIntervalUs : 0;
+    }
+
+    public boolean meetsRequestedRate() {
+        return intervalCount > 0 && getAchievedRateHz() >= getRequestedRateHz() * RATE_TOLERANCE;
+    }
+
+    public static String getBucketLabel(int bucket) {
+        if (bucket < JITTER_BUCKET_EDGES_PERCENT.length) {
+            return "<=" + JITTER_BUCKET_EDGES_PERCENT[bucket] + "%";
+        }
+        return ">" + JITTER_BUCKET_EDGES_PERCENT[JITTER_BUCKET_EDGES_PERCENT.length - 1] + "%";
+    }
+
+    public String getHistogramString() {
+        StringBuilder sb = new StringBuilder();
+        for (int bucket = 0; bucket < jitterHistogram.length; bucket++) {
+            if (bucket > 0) sb.append(", ");
+            sb.append(getBucketLabel(bucket)).append(": ").append(jitterHistogram[bucket]);
+        }
+        return sb.toString();
+    }
+
+    public String getSummaryString() {
+        return String.format(Locale.getDefault(), "Rate %.1f/%.1f Hz%s, jitter %.0f us [%d..%d us]",
+                getAchievedRateHz(), getRequestedRateHz(), meetsRequestedRate() ? "" : " (LOW)",
+                jitterUs, minIntervalUs, maxIntervalUs)
+                + "\nJitter: " + getHistogramString();
+    }
+
+    @Override
+    public String toString() {
+        return "RateStatistics{" +
+                "requestedPeriodUs=" + requestedPeriodUs +
+                ", achievedRateHz=" + getAchievedRateHz() +
+                ", jitterUs=" + jitterUs +
+                '}';
+    }
+}
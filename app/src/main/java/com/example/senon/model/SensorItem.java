@@ -2,30 +2,74 @@ package com.example.senon.model;
 
 import android.hardware.Sensor;
 
+import com.example.senon.utils.FixedPointFormatter;
+import com.example.senon.utils.SampleRingBuffer;
+import com.example.senon.utils.SensorIconMapper;
+
+import java.util.Locale;
+
 /**
  * Data class representing a sensor item with its associated icon and current value
  */
 public class SensorItem {
+    public static final int MAX_DISPLAYED_VALUES = 3;
+    private static final int HISTORY_SIZE = 120;
+
     private final Sensor sensor;
     private final int iconResId;
+    private final int displayPriority;
+    private final int sensorKey;
+    private final String sortName;
     private String currentValue;
+    private final float[] currentValues = new float[MAX_DISPLAYED_VALUES];
+    private int currentValueCount;
+    private SampleRingBuffer history;
     private boolean isActive;
+    private boolean testInProgress;
     private long lastUpdated;
 
     public SensorItem(Sensor sensor, int iconResId) {
+        this(sensor, iconResId, SensorIconMapper.getDisplayPriority(sensor.getType()));
+    }
+
+    /**
+     * @param displayPriority Precomputed SensorIconMapper display priority
+     */
+    public SensorItem(Sensor sensor, int iconResId, int displayPriority) {
         this.sensor = sensor;
         this.iconResId = iconResId;
+        this.displayPriority = displayPriority;
+        this.sensorKey = keyOf(sensor);
+        this.sortName = sensor.getName().toLowerCase(Locale.ROOT);
         this.currentValue = "N/A";
         this.isActive = false;
         this.lastUpdated = System.currentTimeMillis();
     }
 
     public SensorItem(Sensor sensor, int iconResId, String currentValue) {
-        this.sensor = sensor;
-        this.iconResId = iconResId;
+        this(sensor, iconResId, SensorIconMapper.getDisplayPriority(sensor.getType()));
         this.currentValue = currentValue;
-        this.isActive = false;
-        this.lastUpdated = System.currentTimeMillis();
+    }
+
+    /**
+     * Computes the key that identifies a sensor in adapter lookups. Unlike the
+     * sensor type it tells apart several sensors of the same type.
+     *
+     * @param sensor The sensor
+     * @return The sensor's id where supported, otherwise a hash of its type,
+     * name, vendor and wake-up flag
+     */
+    public static int keyOf(Sensor sensor) {
+        int id = sensor.getId();
+        if (id > 0) {
+            return id;
+        }
+        // 0 means ids are unsupported and -1 that type and name identify the sensor
+        int key = sensor.getType();
+        key = 31 * key + sensor.getName().hashCode();
+        key = 31 * key + sensor.getVendor().hashCode();
+        key = 31 * key + (sensor.isWakeUpSensor() ? 1 : 0);
+        return key;
     }
 
     public static String getSensorTypeString(int sensorType) {
@@ -74,16 +118,95 @@ public class SensorItem {
         return iconResId;
     }
 
+    public int getDisplayPriority() {
+        return displayPriority;
+    }
+
+    public int getSensorKey() {
+        return sensorKey;
+    }
+
+    /**
+     * @return The lowercase sensor name, precomputed as sort key
+     */
+    public String getSortName() {
+        return sortName;
+    }
+
     public String getCurrentValue() {
+        if (currentValue == null) {
+            // Live values are formatted lazily; the list formats them without allocating
+            FixedPointFormatter formatter = new FixedPointFormatter(2);
+            appendCurrentValues(formatter);
+            currentValue = formatter.toString();
+        }
         return currentValue;
     }
 
+    /**
+     * @return Whether the current value is the numeric values of a live event
+     */
+    public boolean hasCurrentValues() {
+        return currentValueCount > 0;
+    }
+
+    /**
+     * @return The recent live values shown in the row's sparkline, sampled at
+     * a fixed interval while the sensor is monitored, or null if no sample was
+     * taken yet. Written on the main thread.
+     */
+    public SampleRingBuffer getHistory() {
+        return history;
+    }
+
+    /**
+     * Writes the live values comma separated into the formatter
+     */
+    public void appendCurrentValues(FixedPointFormatter formatter) {
+        for (int i = 0; i < currentValueCount; i++) {
+            if (i > 0) formatter.append(", ");
+            formatter.append(currentValues[i]);
+        }
+    }
+
     // Setters
     public void setCurrentValue(String currentValue) {
         this.currentValue = currentValue;
+        this.currentValueCount = 0;
+        this.lastUpdated = System.currentTimeMillis();
+    }
+
+    /**
+     * Stores the leading values of a live event without allocating
+     *
+     * @param values The event values
+     * @param count  Number of valid entries in values
+     */
+    public void setCurrentValues(float[] values, int count) {
+        int displayed = Math.min(count, MAX_DISPLAYED_VALUES);
+        System.arraycopy(values, 0, currentValues, 0, displayed);
+        this.currentValueCount = displayed;
+        this.currentValue = null;
         this.lastUpdated = System.currentTimeMillis();
     }
 
+    /**
+     * Adds the latest live values to the history. Called at a fixed interval,
+     * so a resting sensor keeps a moving plot and bursts are not compressed.
+     *
+     * @return Whether a sample was added, i.e. live values were received
+     */
+    public boolean appendHistorySample() {
+        if (currentValueCount == 0) {
+            return false;
+        }
+        if (history == null) {
+            history = new SampleRingBuffer(HISTORY_SIZE, MAX_DISPLAYED_VALUES);
+        }
+        history.add(currentValues, currentValueCount);
+        return true;
+    }
+
     public boolean isActive() {
         return isActive;
     }
@@ -92,6 +215,14 @@ public class SensorItem {
         this.isActive = active;
     }
 
+    public boolean isTestInProgress() {
+        return testInProgress;
+    }
+
+    public void setTestInProgress(boolean testInProgress) {
+        this.testInProgress = testInProgress;
+    }
+
     public long getLastUpdated() {
         return lastUpdated;
     }
@@ -134,7 +265,7 @@ public class SensorItem {
         return "SensorItem{" +
                 "sensorName='" + getSensorName() + '\'' +
                 ", sensorType='" + getSensorTypeString() + '\'' +
-                ", currentValue='" + currentValue + '\'' +
+                ", currentValue='" + getCurrentValue() + '\'' +
                 ", isActive=" + isActive +
                 '}';
     }
@@ -0,0 +1,142 @@
+package com.example.senon.model;
+
+import java.io.Serializable;
+import java.util.Locale;
+
+/**
+ * Per-axis statistics collected during a deep sensor test
+ */
+public class SensorStatistics implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final String[] AXIS_NAMES = {"X", "Y", "Z"};
+
+    private final long sampleCount;
+    private final long spanNs;
+    private final int axisCount;
+    private final double[] mean;
+    private final double[] stdDev;
+    private final double[] drift;
+    private final float[] min;
+    private final float[] max;
+    private final float[] p5;
+    private final float[] p50;
+    private final float[] p95;
+    private final int measuredAxisCount;
+
+    /**
+     * @param measuredAxisCount Leading axes that carry measurements; only these
+     *                          are checked for being stuck
+     */
+    public SensorStatistics(long sampleCount, long spanNs, double[] mean, double[] stdDev, double[] drift,
+                            float[] min, float[] max, float[] p5, float[] p50, float[] p95,
+                            int measuredAxisCount) {
+        this.sampleCount = sampleCount;
+        this.spanNs = spanNs;
+        this.axisCount = mean.length;
+        this.mean = mean;
+        this.stdDev = stdDev;
+        this.drift = drift;
+        this.min = min;
+        this.max = max;
+        this.p5 = p5;
+        this.p50 = p50;
+        this.p95 = p95;
+        this.measuredAxisCount = measuredAxisCount;
+    }
+
+    // Getters
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    public int getAxisCount() {
+        return axisCount;
+    }
+
+    public int getMeasuredAxisCount() {
+        return measuredAxisCount;
+    }
+
+    public double getMean(int axis) {
+        return mean[axis];
+    }
+
+    public double getStdDev(int axis) {
+        return stdDev[axis];
+    }
+
+    public double getDrift(int axis) {
+        return drift[axis];
+    }
+
+    public float getMin(int axis) {
+        return min[axis];
+    }
+
+    public float getMax(int axis) {
+        return max[axis];
+    }
+
+    public float getP5(int axis) {
+        return p5[axis];
+    }
+
+    public float getMedian(int axis) {
+        return p50[axis];
+    }
+
+    public float getP95(int axis) {
+        return p95[axis];
+    }
+
+    // Utility methods
+    public double getSampleRateHz() {
+        return spanNs > 0 ? (sampleCount - 1) * 1e9 / spanNs : 0;
+    }
+
+    /**
+     * An axis that never changed over many samples usually means a stuck or
+     * disconnected sensor channel. Axes past the measurement axes are never
+     * reported as stuck.
+     */
+    public boolean isAxisStuck(int axis) {
+        return axis < measuredAxisCount && sampleCount >= 10 && min[axis] == max[axis];
+    }
+
+    public boolean hasStuckAxis() {
+        for (int axis = 0; axis < measuredAxisCount; axis++) {
+            if (isAxisStuck(axis)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static String getAxisName(int axis) {
+        return axis < AXIS_NAMES.length ? AXIS_NAMES[axis] : "V" + axis;
+    }
+
+    public String getSummaryString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.getDefault(), "%d samples @ %.1f Hz", sampleCount, getSampleRateHz()));
+        for (int axis = 0; axis < axisCount; axis++) {
+            sb.append('\n').append(getAxisName(axis)).append(": ");
+            sb.append(String.format(Locale.getDefault(), "mean %.4f, sd %.4f, range [%.3f, %.3f], p5/p50/p95 %.3f/%.3f/%.3f, drift %.4f/s",
+                    mean[axis], stdDev[axis], min[axis], max[axis], p5[axis], p50[axis], p95[axis], drift[axis]));
+            if (isAxisStuck(axis)) {
+                sb.append(" (STUCK)");
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "SensorStatistics{" +
+                "sampleCount=" + sampleCount +
+                ", axisCount=" + axisCount +
+                ", sampleRateHz=" + getSampleRateHz() +
+                ", hasStuckAxis=" + hasStuckAxis() +
+                '}';
+    }
+}
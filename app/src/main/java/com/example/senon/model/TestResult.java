@@ -2,6 +2,8 @@ package com.example.senon.model;
 
 import android.hardware.Sensor;
 
+import com.example.senon.utils.FixedPointFormatter;
+
 import java.io.Serializable;
 
 /**
@@ -9,32 +11,59 @@ import java.io.Serializable;
  */
 public class TestResult implements Serializable {
     private static final long serialVersionUID = 1L;
+
+    /** Accuracy of results whose sensor never reported one, such as trigger sensors */
+    public static final int ACCURACY_UNKNOWN = Integer.MIN_VALUE;
+
     private final transient Sensor sensor;
     private final String sensorName;
     private final String sensorVendor;
     private final int sensorType;
     private final String sensorStringType;
     private final boolean isWorking;
+    private final boolean armedOnly;
     private final String errorMessage;
     private final float[] sampleData;
     private final long testDuration;
     private final int accuracy;
     private final long timestamp;
     private final String testStatus;
+    private final SensorStatistics statistics;
+    private final RateStatistics rateStatistics;
+    private final LatencySummary latency;
+    private final BatchingStatistics batchingStatistics;
+    private final DirectChannelStatistics directChannelStatistics;
 
     public TestResult(Sensor sensor, boolean isWorking, String errorMessage,
                       float[] sampleData, long testDuration, int accuracy) {
+        this(new Builder()
+                .setSensor(sensor)
+                .setWorking(isWorking)
+                .setErrorMessage(errorMessage)
+                .setSampleData(sampleData)
+                .setTestDuration(testDuration)
+                .setAccuracy(accuracy));
+    }
+
+    private TestResult(Builder builder) {
+        Sensor sensor = builder.sensor;
         this.sensor = sensor;
         this.sensorName = sensor != null ? sensor.getName() : "Unknown";
         this.sensorVendor = sensor != null ? sensor.getVendor() : "Unknown";
         this.sensorType = sensor != null ? sensor.getType() : -1;
         this.sensorStringType = sensor != null ? sensor.getStringType() : "Unknown";
-        this.isWorking = isWorking;
-        this.errorMessage = errorMessage;
-        this.sampleData = sampleData != null ? sampleData.clone() : null;
-        this.testDuration = testDuration;
-        this.accuracy = accuracy;
+        this.isWorking = builder.isWorking;
+        this.armedOnly = builder.armedOnly;
+        this.errorMessage = builder.errorMessage;
+        this.sampleData = builder.sampleData != null ? builder.sampleData.clone() : null;
+        this.testDuration = builder.testDuration;
+        this.accuracy = builder.accuracy;
         this.timestamp = System.currentTimeMillis();
+        this.statistics = builder.statistics;
+        this.rateStatistics = builder.rateStatistics;
+        this.latency = builder.latency;
+        this.batchingStatistics = builder.batchingStatistics;
+        this.directChannelStatistics = builder.directChannelStatistics;
         this.testStatus = determineTestStatus();
     }
 
@@ -67,6 +96,24 @@ public class TestResult implements Serializable {
         return isWorking;
     }
 
+    /**
+     * @return Whether a one-shot sensor accepted its trigger request but never
+     * fired during the test, so no data proves it works
+     */
+    public boolean isArmedOnly() {
+        return armedOnly;
+    }
+
+    /**
+     * @return Short verdict for lists and reports: PASS, ARMED or FAIL
+     */
+    public String getVerdict() {
+        if (!isWorking) {
+            return "FAIL";
+        }
+        return armedOnly ? "ARMED" : "PASS";
+    }
+
     public String getErrorMessage() {
         return errorMessage;
     }
@@ -91,6 +138,26 @@ public class TestResult implements Serializable {
         return testStatus;
     }
 
+    public SensorStatistics getStatistics() {
+        return statistics;
+    }
+
+    public RateStatistics getRateStatistics() {
+        return rateStatistics;
+    }
+
+    public LatencySummary getLatency() {
+        return latency;
+    }
+
+    public BatchingStatistics getBatchingStatistics() {
+        return batchingStatistics;
+    }
+
+    public DirectChannelStatistics getDirectChannelStatistics() {
+        return directChannelStatistics;
+    }
+
     // Utility methods
     public String getSensorName() {
         return sensorName;
@@ -116,6 +183,46 @@ public class TestResult implements Serializable {
         return sampleData != null && sampleData.length > 0;
     }
 
+    public boolean hasStatistics() {
+        return statistics != null;
+    }
+
+    public boolean hasRateStatistics() {
+        return rateStatistics != null;
+    }
+
+    public boolean hasLatency() {
+        return latency != null;
+    }
+
+    public boolean hasBatchingStatistics() {
+        return batchingStatistics != null;
+    }
+
+    public boolean hasDirectChannelStatistics() {
+        return directChannelStatistics != null;
+    }
+
+    /**
+     * Creates a builder initialised with this result, for adding the output of
+     * later test stages
+     */
+    public Builder buildUpon() {
+        return new Builder()
+                .setSensor(sensor)
+                .setWorking(isWorking)
+                .setArmedOnly(armedOnly)
+                .setErrorMessage(errorMessage)
+                .setSampleData(sampleData)
+                .setTestDuration(testDuration)
+                .setAccuracy(accuracy)
+                .setStatistics(statistics)
+                .setRateStatistics(rateStatistics)
+                .setLatency(latency)
+                .setBatchingStatistics(batchingStatistics)
+                .setDirectChannelStatistics(directChannelStatistics);
+    }
+
     public String getFormattedDuration() {
         if (testDuration < 1000) {
             return testDuration + "ms";
@@ -144,20 +251,29 @@ public class TestResult implements Serializable {
             return "No data";
         }
 
-        StringBuilder sb = new StringBuilder();
+        FixedPointFormatter formatter = new FixedPointFormatter(2);
         for (int i = 0; i < Math.min(sampleData.length, 3); i++) {
-            if (i > 0) sb.append(", ");
-            sb.append(String.format("%.2f", sampleData[i]));
+            if (i > 0) formatter.append(", ");
+            formatter.append(sampleData[i]);
         }
         if (sampleData.length > 3) {
-            sb.append("...");
+            formatter.append("...");
         }
-        return sb.toString();
+        return formatter.toString();
     }
 
     private String determineTestStatus() {
         if (isWorking) {
-            if (accuracy >= android.hardware.SensorManager.SENSOR_STATUS_ACCURACY_MEDIUM) {
+            if (armedOnly) {
+                return "ARMED (Not Triggered)";
+            } else if (statistics != null && statistics.hasStuckAxis()) {
+                return "PASS (Stuck Axis)";
+            } else if (rateStatistics != null && !rateStatistics.meetsRequestedRate()) {
+                return "PASS (Low Rate)";
+            } else if (batchingStatistics != null && !batchingStatistics.meetsDeclaredCapacity()) {
+                return "PASS (FIFO Short)";
+            } else if (accuracy == ACCURACY_UNKNOWN
+                    || accuracy >= android.hardware.SensorManager.SENSOR_STATUS_ACCURACY_MEDIUM) {
                 return "PASS";
             } else {
                 return "PASS (Low Accuracy)";
@@ -172,10 +288,16 @@ public class TestResult implements Serializable {
         return "TestResult{" +
                 "sensor=" + sensorName +
                 ", isWorking=" + isWorking +
+                ", armedOnly=" + armedOnly +
                 ", errorMessage='" + errorMessage + '\'' +
                 ", sampleData=" + getSampleDataString() +
                 ", testDuration=" + testDuration +
                 ", accuracy=" + accuracy +
+                ", statistics=" + statistics +
+                ", rateStatistics=" + rateStatistics +
+                ", latency=" + latency +
+                ", batchingStatistics=" + batchingStatistics +
+                ", directChannelStatistics=" + directChannelStatistics +
                 ", timestamp=" + timestamp +
                 '}';
     }
@@ -184,10 +306,16 @@ public class TestResult implements Serializable {
     public static class Builder {
         private Sensor sensor;
         private boolean isWorking = false;
+        private boolean armedOnly = false;
         private String errorMessage = null;
         private float[] sampleData = null;
         private long testDuration = 0;
         private int accuracy = 0;
+        private SensorStatistics statistics = null;
+        private RateStatistics rateStatistics = null;
+        private LatencySummary latency = null;
+        private BatchingStatistics batchingStatistics = null;
+        private DirectChannelStatistics directChannelStatistics = null;
 
         public Builder setSensor(Sensor sensor) {
             this.sensor = sensor;
@@ -199,6 +327,11 @@ public class TestResult implements Serializable {
             return this;
         }
 
+        public Builder setArmedOnly(boolean armedOnly) {
+            this.armedOnly = armedOnly;
+            return this;
+        }
+
         public Builder setErrorMessage(String errorMessage) {
             this.errorMessage = errorMessage;
             return this;
@@ -219,11 +352,48 @@ public class TestResult implements Serializable {
             return this;
         }
 
+        public Builder setStatistics(SensorStatistics statistics) {
+            this.statistics = statistics;
+            return this;
+        }
+
+        public Builder setRateStatistics(RateStatistics rateStatistics) {
+            this.rateStatistics = rateStatistics;
+            return this;
+        }
+
+        public Builder setLatency(LatencySummary latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        public Builder setBatchingStatistics(BatchingStatistics batchingStatistics) {
+            this.batchingStatistics = batchingStatistics;
+            return this;
+        }
+
+        public Builder setDirectChannelStatistics(DirectChannelStatistics directChannelStatistics) {
+            this.directChannelStatistics = directChannelStatistics;
+            return this;
+        }
+
+        public Sensor getSensor() {
+            return sensor;
+        }
+
+        public long getTestDuration() {
+            return testDuration;
+        }
+
+        public LatencySummary getLatency() {
+            return latency;
+        }
+
         public TestResult build() {
             if (sensor == null) {
                 throw new IllegalStateException("Sensor must be set");
             }
-            return new TestResult(sensor, isWorking, errorMessage, sampleData, testDuration, accuracy);
+            return new TestResult(this);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,125 @@
+package com.example.senon.utils;
+
+import android.hardware.Sensor;
+import android.hardware.SensorDirectChannel;
+import android.hardware.SensorManager;
+import android.os.MemoryFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Captures one sensor through a SensorDirectChannel backed by a MemoryFile.
+ * The sensor writes its reports straight into the shared ring, avoiding the
+ * per-sample SensorEvent allocation and binder hop of the listener path.
+ * MemoryFile cannot be mapped, so {@link #poll} copies the ring into a byte
+ * array allocated once and hands new records to a DirectReportParser.
+ */
+public class DirectChannelCapture implements Closeable {
+
+    private final SensorManager sensorManager;
+    private final DirectReportParser parser;
+    private final int ringRecords;
+    private MemoryFile memory;
+    private byte[] ringBytes;
+    private ByteBuffer ring;
+    private SensorDirectChannel channel;
+    private Sensor sensor;
+    private int rateLevel = SensorDirectChannel.RATE_STOP;
+
+    /**
+     * @param ringRecords Number of records the ring holds; it must cover the
+     *                    samples arriving between two polls
+     */
+    public DirectChannelCapture(SensorManager sensorManager, DirectReportParser parser, int ringRecords) {
+        this.sensorManager = sensorManager;
+        this.parser = parser;
+        this.ringRecords = ringRecords;
+    }
+
+    /**
+     * @return true if the sensor can report into a shared memory channel
+     */
+    public static boolean isSupported(Sensor sensor) {
+        return sensor.isDirectChannelTypeSupported(SensorDirectChannel.TYPE_MEMORY_FILE)
+                && sensor.getHighestDirectReportRateLevel() > SensorDirectChannel.RATE_STOP;
+    }
+
+    /**
+     * Creates the channel and starts the sensor
+     *
+     * @param sensor       The sensor to capture
+     * @param maxRateLevel The fastest rate level wanted, e.g. SensorDirectChannel.RATE_VERY_FAST
+     * @return The rate level configured, limited by what the sensor supports
+     * @throws IOException if the channel could not be created or configured
+     */
+    public int start(Sensor sensor, int maxRateLevel) throws IOException {
+        close();
+        int ringSize = ringRecords * DirectReportParser.RECORD_SIZE;
+        memory = new MemoryFile("SensorDirect", ringSize);
+        ringBytes = new byte[ringSize];
+        ring = ByteBuffer.wrap(ringBytes).order(ByteOrder.nativeOrder());
+
+        channel = sensorManager.createDirectChannel(memory);
+        if (channel == null) {
+            close();
+            throw new IOException("Direct channel not available");
+        }
+
+        int level = Math.min(maxRateLevel, sensor.getHighestDirectReportRateLevel());
+        if (channel.configure(sensor, level) <= 0) {
+            close();
+            throw new IOException("Sensor refused direct report rate level " + level);
+        }
+        this.sensor = sensor;
+        this.rateLevel = level;
+        parser.reset();
+        return level;
+    }
+
+    /**
+     * Delivers the records written since the last poll
+     *
+     * @return The number of records delivered
+     * @throws IOException if the shared ring could not be read
+     */
+    public int poll(DirectReportParser.SampleSink sink) throws IOException {
+        if (memory == null) {
+            return 0;
+        }
+        memory.readBytes(ringBytes, 0, 0, ringBytes.length);
+        return parser.poll(ring, sink);
+    }
+
+    public long getDroppedCount() {
+        return parser.getDroppedCount();
+    }
+
+    public int getRateLevel() {
+        return rateLevel;
+    }
+
+    /**
+     * Stops the sensor and releases the channel and its memory
+     */
+    @Override
+    public void close() {
+        if (channel != null) {
+            if (sensor != null) {
+                channel.configure(sensor, SensorDirectChannel.RATE_STOP);
+            }
+            channel.close();
+            channel = null;
+        }
+        ring = null;
+        ringBytes = null;
+        if (memory != null) {
+            memory.close();
+            memory = null;
+        }
+        sensor = null;
+        rateLevel = SensorDirectChannel.RATE_STOP;
+    }
+}
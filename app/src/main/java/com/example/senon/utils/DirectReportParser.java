@@ -0,0 +1,48 @@
+package com.example.senon.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads sensor direct-report records from the shared memory ring of a
+ * SensorDirectChannel. Implementations depend only on java.nio so they can be
+ * exercised on a plain JVM against a synthetic buffer.
+ */
+public interface DirectReportParser {
+
+    /**
+     * Size of one direct-report record in bytes
+     */
+    int RECORD_SIZE = 104;
+
+    /**
+     * Number of float values carried by each record
+     */
+    int MAX_VALUES = 16;
+
+    /**
+     * Delivers every record written since the previous call
+     *
+     * @param ring A copy of the ring; its byte order must be the native (little-endian) order
+     * @param sink Receives each new record
+     * @return The number of records delivered
+     */
+    int poll(ByteBuffer ring, SampleSink sink);
+
+    /**
+     * @return How many records were overwritten before they could be read
+     */
+    long getDroppedCount();
+
+    /**
+     * Forgets the read position, for reuse with a new channel
+     */
+    void reset();
+
+    interface SampleSink {
+        /**
+         * Called for each record. The values array is reused for the next
+         * record and must not be kept.
+         */
+        void onSample(int reportToken, int sensorType, long timestampNs, float[] values);
+    }
+}
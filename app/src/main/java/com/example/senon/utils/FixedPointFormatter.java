@@ -0,0 +1,149 @@
+package com.example.senon.utils;
+
+import android.widget.TextView;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
+
+/**
+ * Reusable text buffer for formatting sensor values with a fixed number of
+ * decimals, as a replacement for String.format("%.2f") on hot paths.
+ *
+ * Values are rounded to fixed point and written digit by digit into a char
+ * array that is reused between calls, and {@link #applyTo} hands that array
+ * to TextView.setText(char[], int, int), so formatting a value does not
+ * allocate. The decimal separator and minus sign follow the default locale at
+ * construction time.
+ *
+ * TextView keeps a reference to the array it was given, so every TextView
+ * needs its own formatter. Not thread safe.
+ */
+public class FixedPointFormatter {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int decimals;
+    private final long scale;
+    // Magnitudes from here on would overflow a long once scaled by 10^decimals
+    private final double maxFixedPoint;
+    private final char decimalSeparator;
+    private final char minusSign;
+    private final char[] digits = new char[20];
+    private char[] buffer = new char[INITIAL_CAPACITY];
+    private int length;
+
+    /**
+     * @param decimals Number of decimals to print, 0 to 6
+     */
+    public FixedPointFormatter(int decimals) {
+        if (decimals < 0 || decimals > 6) {
+            throw new IllegalArgumentException("Unsupported number of decimals: " + decimals);
+        }
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance();
+        this.decimals = decimals;
+        this.scale = (long) Math.pow(10, decimals);
+        this.maxFixedPoint = Long.MAX_VALUE / scale;
+        this.decimalSeparator = symbols.getDecimalSeparator();
+        this.minusSign = symbols.getMinusSign();
+    }
+
+    /**
+     * Clears the buffer for a new text
+     */
+    public FixedPointFormatter reset() {
+        length = 0;
+        return this;
+    }
+
+    /**
+     * Appends a value rounded to the configured number of decimals
+     */
+    public FixedPointFormatter append(float value) {
+        if (Float.isNaN(value) || Float.isInfinite(value) || Math.abs(value) >= maxFixedPoint) {
+            // Out of fixed point range; rare enough to allow the allocation
+            return append(Float.toString(value));
+        }
+
+        long fixed = Math.round(Math.abs((double) value) * scale);
+        if (value < 0 && fixed != 0) {
+            append(minusSign);
+        }
+        appendDigits(fixed / scale, 1);
+        if (decimals > 0) {
+            append(decimalSeparator);
+            appendDigits(fixed % scale, decimals);
+        }
+        return this;
+    }
+
+    /**
+     * Appends an integer value
+     */
+    public FixedPointFormatter append(long value) {
+        if (value < 0) {
+            append(minusSign);
+            if (value == Long.MIN_VALUE) {
+                return append("9223372036854775808");
+            }
+            value = -value;
+        }
+        appendDigits(value, 1);
+        return this;
+    }
+
+    public FixedPointFormatter append(char c) {
+        ensureCapacity(1);
+        buffer[length++] = c;
+        return this;
+    }
+
+    public FixedPointFormatter append(String text) {
+        int count = text.length();
+        ensureCapacity(count);
+        text.getChars(0, count, buffer, length);
+        length += count;
+        return this;
+    }
+
+    /**
+     * Shows the formatted text without copying it into a String
+     */
+    public void applyTo(TextView textView) {
+        textView.setText(buffer, 0, length);
+    }
+
+    public char[] getBuffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+
+    private void appendDigits(long value, int minDigits) {
+        int count = 0;
+        do {
+            digits[count++] = (char) ('0' + (value % 10));
+            value /= 10;
+        } while (value > 0);
+        while (count < minDigits) {
+            digits[count++] = '0';
+        }
+
+        ensureCapacity(count);
+        while (count > 0) {
+            buffer[length++] = digits[--count];
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.senon.utils;
+
+import com.example.senon.model.LatencySummary;
+
+/**
+ * Fixed-memory histogram of event delivery latency. Values are recorded in
+ * microseconds into log-linear buckets (8 per power of two, so every bucket is
+ * within 12.5% of its value), which keeps recording to a couple of shifts and
+ * an array increment with no allocation.
+ *
+ * Recording is meant for a single thread, normally the sensor dispatch thread.
+ * Summaries may be taken from another thread and can then miss the most recent
+ * few events.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (31 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final int[] counts = new int[BUCKET_COUNT];
+    private long count;
+    private long maxUs;
+
+    /**
+     * Records the delay between an event's timestamp and its delivery
+     *
+     * @param latencyNs SystemClock.elapsedRealtimeNanos() at delivery minus SensorEvent.timestamp
+     */
+    public void record(long latencyNs) {
+        long latencyUs = latencyNs / 1000;
+        // Timestamps from some HALs run slightly ahead of the delivery clock
+        if (latencyUs < 0) latencyUs = 0;
+        if (latencyUs > Integer.MAX_VALUE) latencyUs = Integer.MAX_VALUE;
+
+        counts[bucketFor(latencyUs)]++;
+        count++;
+        if (latencyUs > maxUs) maxUs = latencyUs;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = 0;
+        }
+        count = 0;
+        maxUs = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMaxUs() {
+        return maxUs;
+    }
+
+    /**
+     * Gets the latency at or below which the given fraction of events were
+     * delivered, reported as the upper edge of the matching bucket
+     *
+     * @param fraction The percentile as a fraction, e.g. 0.99
+     * @return The latency in microseconds, or 0 when nothing was recorded
+     */
+    public long getPercentileUs(double fraction) {
+        long total = count;
+        if (total == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(bucket), maxUs);
+            }
+        }
+        return maxUs;
+    }
+
+    public LatencySummary toSummary() {
+        return new LatencySummary(count, getPercentileUs(0.50), getPercentileUs(0.90),
+                getPercentileUs(0.99), maxUs);
+    }
+
+    private static int bucketFor(long valueUs) {
+        if (valueUs < SUB_BUCKETS) {
+            return (int) valueUs;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(valueUs);
+        int mantissa = (int) (valueUs >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + mantissa;
+    }
+
+    private static long bucketLowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int mantissa = bucket % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + mantissa) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    private static long bucketUpperBound(int bucket) {
+        return bucketLowerBound(bucket + 1) - 1;
+    }
+}
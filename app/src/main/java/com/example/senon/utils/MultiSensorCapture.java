@@ -0,0 +1,391 @@
+package com.example.senon.utils;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Records several sensors at once on a shared timeline keyed by
+ * SensorEvent.timestamp.
+ *
+ * Every sensor gets a track with primitive timestamp and value arrays sized up
+ * front for the whole capture, from the sensor's fastest rate and the maximum
+ * capture duration. Events are appended on the sensor dispatch thread without
+ * allocating or locking; the track's event count is published last, so the
+ * main thread can read everything below it while capture runs. Tracks never
+ * wrap: a full track counts further events as dropped instead of overwriting
+ * what the export needs.
+ *
+ * Sensor timestamps share the elapsedRealtimeNanos time base, so tracks are
+ * aligned by resampling them at common points in time.
+ */
+public class MultiSensorCapture {
+
+    private static final String TAG = "MultiSensorCapture";
+
+    /** Values stored per event; covers the uncalibrated sensors */
+    public static final int MAX_VALUES = 6;
+
+    // Headroom over the nominal fastest rate, since sensors often run slightly fast
+    private static final float RATE_HEADROOM = 1.25f;
+    private static final int FALLBACK_MAX_RATE_HZ = 200;
+    // Listener delivery tops out well below this; a tiny reported minDelay must not size gigabyte buffers
+    private static final int MAX_RATE_HZ = 2000;
+
+    private final List<Track> tracks;
+    private final long maxDurationNs;
+    private volatile long startTimestampNs;
+    private volatile boolean capturing;
+
+    /**
+     * @param sensors           The sensors to record
+     * @param maxDurationMillis Longest capture the buffers are sized for
+     */
+    public MultiSensorCapture(List<Sensor> sensors, long maxDurationMillis) {
+        List<Track> created = new ArrayList<>(sensors.size());
+        Set<String> columnNames = new HashSet<>();
+        for (int i = 0; i < sensors.size(); i++) {
+            Sensor sensor = sensors.get(i);
+            int minDelayUs = sensor.getMinDelay();
+            float maxRateHz = minDelayUs > 0 ? Math.min(1_000_000f / minDelayUs, MAX_RATE_HZ) : FALLBACK_MAX_RATE_HZ;
+            int capacity = (int) Math.ceil(maxRateHz * RATE_HEADROOM * maxDurationMillis / 1000f);
+            created.add(new Track(this, sensor, uniqueColumnName(sensor, i, columnNames), capacity));
+        }
+        this.tracks = Collections.unmodifiableList(created);
+        this.maxDurationNs = maxDurationMillis * 1_000_000L;
+    }
+
+    /**
+     * Reduces the sensor name to a CSV-safe column prefix. Wake-up and
+     * non-wake-up variants often share a name, so wake-up sensors are marked,
+     * and any name still taken gets the track index.
+     */
+    private static String uniqueColumnName(Sensor sensor, int index, Set<String> taken) {
+        String name = sensor.getName().replaceAll("[^A-Za-z0-9]+", "_").toLowerCase(Locale.ROOT);
+        if (sensor.isWakeUpSensor()) {
+            name += "_wakeup";
+        }
+        if (!taken.add(name)) {
+            name += "_" + index;
+            taken.add(name);
+        }
+        return name;
+    }
+
+    /**
+     * Subscribes every sensor at its fastest rate and starts recording
+     *
+     * @return Whether all sensors could be registered; none are if any failed
+     */
+    public boolean start(SensorStreamHub streamHub) {
+        startTimestampNs = SystemClock.elapsedRealtimeNanos();
+        capturing = true;
+        for (Track track : tracks) {
+            track.subscription = streamHub.subscribe(track.sensor, SensorManager.SENSOR_DELAY_FASTEST, track);
+            if (track.subscription == null) {
+                Log.w(TAG, "Failed to register " + track.sensor.getName());
+                stop();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void stop() {
+        capturing = false;
+        for (Track track : tracks) {
+            if (track.subscription != null) {
+                track.subscription.close();
+                track.subscription = null;
+            }
+        }
+    }
+
+    public boolean isCapturing() {
+        return capturing;
+    }
+
+    public List<Track> getTracks() {
+        return tracks;
+    }
+
+    /**
+     * @return Timestamp the capture started at, in the sensor time base
+     */
+    public long getStartTimestampNs() {
+        return startTimestampNs;
+    }
+
+    /**
+     * @return Whether a track ran out of space or the maximum duration passed
+     */
+    public boolean isLimitReached() {
+        for (Track track : tracks) {
+            if (track.isFull()) {
+                return true;
+            }
+        }
+        return SystemClock.elapsedRealtimeNanos() - startTimestampNs >= maxDurationNs;
+    }
+
+    /**
+     * @return Timestamp of the newest event across all tracks, or the start
+     *         timestamp if nothing was recorded yet
+     */
+    public long getLatestTimestampNs() {
+        long latest = startTimestampNs;
+        for (Track track : tracks) {
+            int count = track.getCount();
+            if (count > 0) {
+                latest = Math.max(latest, track.getTimestamp(count - 1));
+            }
+        }
+        return latest;
+    }
+
+    public int getTotalCount() {
+        int total = 0;
+        for (Track track : tracks) {
+            total += track.getCount();
+        }
+        return total;
+    }
+
+    public int getTotalDroppedCount() {
+        int total = 0;
+        for (Track track : tracks) {
+            total += track.getDroppedCount();
+        }
+        return total;
+    }
+
+    /**
+     * Writes the recorded events as CSV in timestamp order. Each row is one
+     * event and carries the latest values of every other sensor at that time,
+     * so the columns of all sensors are aligned.
+     */
+    public void writeCsv(Writer writer) throws IOException {
+        int trackCount = tracks.size();
+        int[] counts = new int[trackCount];
+        int[] cursors = new int[trackCount];
+
+        StringBuilder row = new StringBuilder(256);
+        row.append("timestamp_ns,elapsed_us,source");
+        for (int t = 0; t < trackCount; t++) {
+            Track track = tracks.get(t);
+            counts[t] = track.getCount();
+            String name = track.getColumnName();
+            for (int v = 0; v < track.getValueCount(); v++) {
+                row.append(',').append(name).append('_').append(v);
+            }
+        }
+        writer.write(row.append('\n').toString());
+
+        while (true) {
+            // Merge the tracks by picking the earliest pending event
+            int next = -1;
+            long nextTimestamp = Long.MAX_VALUE;
+            for (int t = 0; t < trackCount; t++) {
+                if (cursors[t] < counts[t] && tracks.get(t).getTimestamp(cursors[t]) < nextTimestamp) {
+                    next = t;
+                    nextTimestamp = tracks.get(t).getTimestamp(cursors[t]);
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            cursors[next]++;
+
+            row.setLength(0);
+            row.append(nextTimestamp).append(',')
+                    .append((nextTimestamp - startTimestampNs) / 1000).append(',')
+                    .append(tracks.get(next).getColumnName());
+            for (int t = 0; t < trackCount; t++) {
+                Track track = tracks.get(t);
+                int latest = cursors[t] - 1;
+                for (int v = 0; v < track.getValueCount(); v++) {
+                    row.append(',');
+                    if (latest >= 0) {
+                        row.append(track.getValue(latest, v));
+                    }
+                }
+            }
+            writer.write(row.append('\n').toString());
+        }
+        writer.flush();
+    }
+
+    /**
+     * One sensor's recorded events. Written on the sensor dispatch thread,
+     * readable on any thread up to {@link #getCount()}.
+     */
+    public static class Track implements SensorEventListener {
+        private final MultiSensorCapture capture;
+        private final Sensor sensor;
+        private final String columnName;
+        private final int capacity;
+        private final long[] timestamps;
+        private final float[] values;
+        private volatile int valueCount;
+        private volatile int count;
+        private volatile int droppedCount;
+        private volatile boolean full;
+        private SensorStreamHub.Subscription subscription;
+
+        Track(MultiSensorCapture capture, Sensor sensor, String columnName, int capacity) {
+            this.capture = capture;
+            this.sensor = sensor;
+            this.columnName = columnName;
+            this.capacity = capacity;
+            this.timestamps = new long[capacity];
+            this.values = new float[capacity * MAX_VALUES];
+        }
+
+        @Override
+        public void onSensorChanged(SensorEvent event) {
+            if (!capture.capturing || event.timestamp < capture.startTimestampNs) {
+                // Stale events still in the FIFO from before the capture
+                return;
+            }
+            int index = count;
+            if (index > 0 && event.timestamp <= timestamps[index - 1]) {
+                // Out of order or repeated; resampling needs increasing timestamps
+                droppedCount++;
+                return;
+            }
+            if (index >= capacity) {
+                full = true;
+                droppedCount++;
+                return;
+            }
+
+            int valueCount = Math.min(event.values.length, MAX_VALUES);
+            timestamps[index] = event.timestamp;
+            System.arraycopy(event.values, 0, values, index * MAX_VALUES, valueCount);
+            this.valueCount = valueCount;
+            // Publish the event only once it is fully written
+            count = index + 1;
+        }
+
+        @Override
+        public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        }
+
+        public Sensor getSensor() {
+            return sensor;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return Events not stored, because the track was full or their
+         *         timestamp did not follow the previous event's
+         */
+        public int getDroppedCount() {
+            return droppedCount;
+        }
+
+        /**
+         * @return Whether an event arrived after the track ran out of space
+         */
+        public boolean isFull() {
+            return full;
+        }
+
+        /**
+         * @return Values per event, 0 until the first event
+         */
+        public int getValueCount() {
+            return valueCount;
+        }
+
+        public long getTimestamp(int index) {
+            return timestamps[index];
+        }
+
+        public float getValue(int index, int axis) {
+            return values[index * MAX_VALUES + axis];
+        }
+
+        /**
+         * @return Average event rate over the recorded events, 0 until known
+         */
+        public float getRateHz() {
+            int recorded = count;
+            if (recorded < 2) {
+                return 0f;
+            }
+            long spanNs = timestamps[recorded - 1] - timestamps[0];
+            return spanNs > 0 ? (recorded - 1) * 1e9f / spanNs : 0f;
+        }
+
+        /**
+         * Resamples the track at evenly spaced points in time, holding the
+         * latest value at each point. Points before the first event are skipped,
+         * so the newest sample always lines up with endNs.
+         *
+         * @param startNs   Time of the first point, in the sensor time base
+         * @param endNs     Time of the last point
+         * @param points    Number of points
+         * @param scratch   Reusable array of at least {@link #MAX_VALUES} entries
+         * @param out       Receives the resampled values; cleared first
+         */
+        public void resample(long startNs, long endNs, int points, float[] scratch, SampleRingBuffer out) {
+            out.clear();
+            int recorded = count;
+            int axes = valueCount;
+            if (recorded == 0 || points < 2) {
+                return;
+            }
+
+            long stepNs = (endNs - startNs) / (points - 1);
+            // Timestamps are increasing, so the search for each point starts where the last ended
+            int cursor = findLastAtOrBefore(startNs, recorded);
+            for (int i = 0; i < points; i++) {
+                long timeNs = startNs + i * stepNs;
+                while (cursor + 1 < recorded && timestamps[cursor + 1] <= timeNs) {
+                    cursor++;
+                }
+                if (cursor < 0 || timestamps[cursor] > timeNs) {
+                    continue;
+                }
+                System.arraycopy(values, cursor * MAX_VALUES, scratch, 0, axes);
+                out.add(scratch, axes);
+            }
+        }
+
+        private int findLastAtOrBefore(long timeNs, int recorded) {
+            int low = 0;
+            int high = recorded - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (timestamps[mid] <= timeNs) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return found;
+        }
+
+        String getColumnName() {
+            return columnName;
+        }
+    }
+}
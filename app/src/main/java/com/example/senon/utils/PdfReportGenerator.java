@@ -7,6 +7,7 @@ import android.util.DisplayMetrics;
 import android.util.Log;
 import android.view.WindowManager;
 
+import com.example.senon.model.RateStatistics;
 import com.example.senon.model.TestResult;
 import com.itextpdf.io.font.constants.StandardFonts;
 import com.itextpdf.kernel.colors.ColorConstants;
@@ -92,25 +93,33 @@ public class PdfReportGenerator {
             // Calculate statistics
             int totalSensors = testResults.size();
             int workingSensors = 0;
+            int armedSensors = 0;
             int failedSensors = 0;
 
             for (TestResult result : testResults) {
-                if (result.isWorking()) {
-                    workingSensors++;
-                } else {
+                if (!result.isWorking()) {
                     failedSensors++;
+                } else if (result.isArmedOnly()) {
+                    armedSensors++;
+                } else {
+                    workingSensors++;
                 }
             }
 
-            double successRate = totalSensors > 0 ? (workingSensors * 100.0 / totalSensors) : 0;
+            // Armed sensors never delivered data, so they are left out of the success rate
+            int judgedSensors = workingSensors + failedSensors;
+            double successRate = judgedSensors > 0 ? (workingSensors * 100.0 / judgedSensors) : 0;
 
             // Add summary section
             addSummarySection(document, headerFont, normalFont, totalSensors, workingSensors,
-                    failedSensors, successRate, totalDuration);
+                    armedSensors, failedSensors, successRate, totalDuration);
 
             // Add detailed results table
             addDetailedResultsTable(document, headerFont, normalFont, testResults);
 
+            // Add rate verification table when that stage ran
+            addRateVerificationTable(document, headerFont, normalFont, testResults);
+
             // Add footer
             addFooter(document, normalFont);
 
@@ -127,8 +136,8 @@ public class PdfReportGenerator {
     }
 
     private static void addSummarySection(Document document, PdfFont headerFont, PdfFont normalFont,
-                                          int totalSensors, int workingSensors, int failedSensors,
-                                          double successRate, long totalDuration) throws IOException {
+                                          int totalSensors, int workingSensors, int armedSensors,
+                                          int failedSensors, double successRate, long totalDuration) throws IOException {
 
         // Summary header
         Paragraph summaryHeader = new Paragraph("Test Summary")
@@ -140,19 +149,21 @@ public class PdfReportGenerator {
         document.add(summaryHeader);
 
         // Summary table
-        Table summaryTable = new Table(UnitValue.createPercentArray(new float[]{1, 1, 1, 1}))
+        Table summaryTable = new Table(UnitValue.createPercentArray(new float[]{1, 1, 1, 1, 1}))
                 .setWidth(UnitValue.createPercentValue(100))
                 .setMarginBottom(20);
 
         // Header row
         summaryTable.addHeaderCell(createHeaderCell("Total Sensors", headerFont));
         summaryTable.addHeaderCell(createHeaderCell("Working", headerFont));
+        summaryTable.addHeaderCell(createHeaderCell("Armed", headerFont));
         summaryTable.addHeaderCell(createHeaderCell("Failed", headerFont));
         summaryTable.addHeaderCell(createHeaderCell("Success Rate", headerFont));
 
         // Data row
         summaryTable.addCell(createDataCell(String.valueOf(totalSensors), normalFont, BLACK_COLOR));
         summaryTable.addCell(createDataCell(String.valueOf(workingSensors), normalFont, SUCCESS_COLOR));
+        summaryTable.addCell(createDataCell(String.valueOf(armedSensors), normalFont, ORANGE_COLOR));
         summaryTable.addCell(createDataCell(String.valueOf(failedSensors), normalFont, ERROR_COLOR));
         summaryTable.addCell(createDataCell(String.format("%.1f%%", successRate), normalFont,
                 successRate >= 80 ? SUCCESS_COLOR : (successRate >= 50 ? ORANGE_COLOR : ERROR_COLOR)));
@@ -199,8 +210,8 @@ public class PdfReportGenerator {
                     .setBackgroundColor(rowColor));
             resultsTable.addCell(createDataCell(result.getSensorTypeString(), normalFont, BLACK_COLOR)
                     .setBackgroundColor(rowColor));
-            resultsTable.addCell(createDataCell(result.isWorking() ? "PASS" : "FAIL", normalFont,
-                    result.isWorking() ? SUCCESS_COLOR : ERROR_COLOR)
+            resultsTable.addCell(createDataCell(result.getVerdict(), normalFont,
+                    !result.isWorking() ? ERROR_COLOR : result.isArmedOnly() ? ORANGE_COLOR : SUCCESS_COLOR)
                     .setBackgroundColor(rowColor));
             resultsTable.addCell(createDataCell(result.getFormattedDuration(), normalFont, BLACK_COLOR)
                     .setBackgroundColor(rowColor));
@@ -208,6 +219,18 @@ public class PdfReportGenerator {
             String details;
             if (result.isWorking()) {
                 details = "Sample: " + result.getSampleDataString() + "\nAccuracy: " + result.getAccuracyString();
+                if (result.hasStatistics()) {
+                    details += "\n" + result.getStatistics().getSummaryString();
+                }
+                if (result.hasBatchingStatistics()) {
+                    details += "\n" + result.getBatchingStatistics().getSummaryString();
+                }
+                if (result.hasDirectChannelStatistics()) {
+                    details += "\n" + result.getDirectChannelStatistics().getSummaryString();
+                }
+                if (result.hasLatency()) {
+                    details += "\n" + result.getLatency().getSummaryString();
+                }
             } else {
                 details = "Error: " + (result.getErrorMessage() != null ? result.getErrorMessage() : "Unknown error");
             }
@@ -219,6 +242,59 @@ public class PdfReportGenerator {
         document.add(resultsTable);
     }
 
+    private static void addRateVerificationTable(Document document, PdfFont headerFont, PdfFont normalFont,
+                                                 List<TestResult> testResults) throws IOException {
+        boolean hasRateResults = false;
+        for (TestResult result : testResults) {
+            if (result.hasRateStatistics()) {
+                hasRateResults = true;
+                break;
+            }
+        }
+        if (!hasRateResults) return;
+
+        // Rate verification header
+        Paragraph rateHeader = new Paragraph("Rate Verification")
+                .setFont(headerFont)
+                .setFontSize(16)
+                .setMarginTop(20)
+                .setMarginBottom(15)
+                .setFontColor(HEADER_COLOR);
+        document.add(rateHeader);
+
+        // Rate table
+        Table rateTable = new Table(UnitValue.createPercentArray(new float[]{2, 1, 1, 1, 3}))
+                .setWidth(UnitValue.createPercentValue(100));
+
+        // Header row
+        rateTable.addHeaderCell(createHeaderCell("Sensor Name", headerFont));
+        rateTable.addHeaderCell(createHeaderCell("Requested", headerFont));
+        rateTable.addHeaderCell(createHeaderCell("Achieved", headerFont));
+        rateTable.addHeaderCell(createHeaderCell("Jitter", headerFont));
+        rateTable.addHeaderCell(createHeaderCell("Jitter Histogram", headerFont));
+
+        // Data rows
+        int row = 0;
+        for (TestResult result : testResults) {
+            if (!result.hasRateStatistics()) continue;
+            RateStatistics rate = result.getRateStatistics();
+            DeviceRgb rowColor = (row++ % 2 == 0) ? WHITE_COLOR : LIGHT_GRAY;
+
+            rateTable.addCell(createDataCell(result.getSensorName(), normalFont, BLACK_COLOR)
+                    .setBackgroundColor(rowColor));
+            rateTable.addCell(createDataCell(String.format(Locale.getDefault(), "%.1f Hz", rate.getRequestedRateHz()), normalFont,
+                    BLACK_COLOR).setBackgroundColor(rowColor));
+            rateTable.addCell(createDataCell(String.format(Locale.getDefault(), "%.1f Hz", rate.getAchievedRateHz()), normalFont,
+                    rate.meetsRequestedRate() ? SUCCESS_COLOR : ERROR_COLOR).setBackgroundColor(rowColor));
+            rateTable.addCell(createDataCell(String.format(Locale.getDefault(), "%.0f us", rate.getJitterUs()), normalFont,
+                    BLACK_COLOR).setBackgroundColor(rowColor));
+            rateTable.addCell(createDataCell(rate.getHistogramString(), normalFont, BLACK_COLOR)
+                    .setBackgroundColor(rowColor));
+        }
+
+        document.add(rateTable);
+    }
+
     private static void addDeviceInformationSection(Document document, Context context, PdfFont headerFont,
                                                     PdfFont normalFont) throws IOException {
         // Device information header
@@ -0,0 +1,88 @@
+package com.example.senon.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * DirectReportParser for the ring layout sensors write into a direct channel:
+ * records are written one after another and wrap at the last whole record,
+ * each carrying a counter that increases by one per record and is written
+ * last. Reads use absolute accessors on the ring buffer and a reused value
+ * array, so polling allocates nothing.
+ */
+public class RingDirectReportParser implements DirectReportParser {
+
+    private static final int OFFSET_SIZE = 0;
+    private static final int OFFSET_TOKEN = 4;
+    private static final int OFFSET_TYPE = 8;
+    private static final int OFFSET_COUNTER = 12;
+    private static final int OFFSET_TIMESTAMP = 16;
+    private static final int OFFSET_VALUES = 24;
+    private static final long FIRST_COUNTER = 1;
+
+    private final float[] values = new float[MAX_VALUES];
+    private long expectedCounter = FIRST_COUNTER;
+    private int position;
+    private long droppedCount;
+
+    @Override
+    public int poll(ByteBuffer ring, SampleSink sink) {
+        int capacity = ring.limit() / RECORD_SIZE;
+        int delivered = 0;
+
+        // Bounded so a writer lapping the reader cannot keep it here
+        for (int attempts = 0; attempts < capacity * 2 && delivered < capacity; attempts++) {
+            int offset = position * RECORD_SIZE;
+            long counter = readCounter(ring, offset);
+            if (counter < expectedCounter) {
+                break; // Not written yet
+            }
+            if (counter > expectedCounter) {
+                // The writer lapped the reader. The records following this one are
+                // the oldest that may still be intact; everything before is lost.
+                long oldest = Math.max(expectedCounter, counter - capacity + 1);
+                droppedCount += oldest - expectedCounter;
+                expectedCounter = oldest;
+                position = (position + 1) % capacity;
+                continue;
+            }
+            if (ring.getInt(offset + OFFSET_SIZE) != RECORD_SIZE) {
+                break;
+            }
+
+            int reportToken = ring.getInt(offset + OFFSET_TOKEN);
+            int sensorType = ring.getInt(offset + OFFSET_TYPE);
+            long timestampNs = ring.getLong(offset + OFFSET_TIMESTAMP);
+            for (int i = 0; i < MAX_VALUES; i++) {
+                values[i] = ring.getFloat(offset + OFFSET_VALUES + i * 4);
+            }
+
+            // A changed counter means the record was overwritten while it was read;
+            // the next pass counts it as dropped
+            if (readCounter(ring, offset) != counter) {
+                continue;
+            }
+
+            sink.onSample(reportToken, sensorType, timestampNs, values);
+            expectedCounter = counter + 1;
+            position = (position + 1) % capacity;
+            delivered++;
+        }
+        return delivered;
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    @Override
+    public void reset() {
+        expectedCounter = FIRST_COUNTER;
+        position = 0;
+        droppedCount = 0;
+    }
+
+    private static long readCounter(ByteBuffer ring, int offset) {
+        return ring.getInt(offset + OFFSET_COUNTER) & 0xFFFFFFFFL;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.senon.utils;
+
+/**
+ * Online per-axis statistics (Welford mean/variance, min/max and a least-squares
+ * drift slope) kept in preallocated primitive arrays so that recording a sample
+ * never allocates.
+ */
+public class RunningStatistics {
+
+    private final int maxAxes;
+    private final double[] mean;
+    private final double[] m2;
+    private final float[] min;
+    private final float[] max;
+    private final double[] sumTimeValue;
+    private double sumTime;
+    private double sumTimeSquared;
+    private long firstTimestampNs;
+    private long lastTimestampNs;
+    private long count;
+    private int axisCount;
+
+    public RunningStatistics(int maxAxes) {
+        this.maxAxes = Math.max(1, maxAxes);
+        mean = new double[this.maxAxes];
+        m2 = new double[this.maxAxes];
+        min = new float[this.maxAxes];
+        max = new float[this.maxAxes];
+        sumTimeValue = new double[this.maxAxes];
+        reset();
+    }
+
+    /**
+     * Records one sample
+     *
+     * @param values      The sample values
+     * @param timestampNs The sample timestamp in nanoseconds
+     */
+    public void add(float[] values, long timestampNs) {
+        int axes = Math.min(values.length, maxAxes);
+        if (axes > axisCount) {
+            axisCount = axes;
+        }
+        if (count == 0) {
+            firstTimestampNs = timestampNs;
+        }
+        lastTimestampNs = timestampNs;
+        count++;
+
+        double t = (timestampNs - firstTimestampNs) / 1e9;
+        sumTime += t;
+        sumTimeSquared += t * t;
+
+        for (int axis = 0; axis < axes; axis++) {
+            float value = values[axis];
+            double delta = value - mean[axis];
+            mean[axis] += delta / count;
+            m2[axis] += delta * (value - mean[axis]);
+            if (value < min[axis]) min[axis] = value;
+            if (value > max[axis]) max[axis] = value;
+            sumTimeValue[axis] += t * value;
+        }
+    }
+
+    public void reset() {
+        for (int axis = 0; axis < maxAxes; axis++) {
+            mean[axis] = 0;
+            m2[axis] = 0;
+            min[axis] = Float.POSITIVE_INFINITY;
+            max[axis] = Float.NEGATIVE_INFINITY;
+            sumTimeValue[axis] = 0;
+        }
+        sumTime = 0;
+        sumTimeSquared = 0;
+        firstTimestampNs = 0;
+        lastTimestampNs = 0;
+        count = 0;
+        axisCount = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public int getAxisCount() {
+        return axisCount;
+    }
+
+    public double getMean(int axis) {
+        return mean[axis];
+    }
+
+    public double getVariance(int axis) {
+        return count > 1 ? m2[axis] / (count - 1) : 0;
+    }
+
+    public float getMin(int axis) {
+        return min[axis];
+    }
+
+    public float getMax(int axis) {
+        return max[axis];
+    }
+
+    /**
+     * @return The least-squares slope of the axis over time, in units per second
+     */
+    public double getDrift(int axis) {
+        double denominator = count * sumTimeSquared - sumTime * sumTime;
+        if (count < 2 || denominator == 0) {
+            return 0;
+        }
+        double sumValue = mean[axis] * count;
+        return (count * sumTimeValue[axis] - sumTime * sumValue) / denominator;
+    }
+
+    /**
+     * @return The time spanned by the recorded samples in nanoseconds
+     */
+    public long getSpanNs() {
+        return lastTimestampNs - firstTimestampNs;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.senon.utils;
+
+/**
+ * Fixed-capacity ring buffer of multi-axis float samples backed by a single
+ * preallocated primitive array. Adding a sample never allocates, so it is safe
+ * to call from onSensorChanged at SENSOR_DELAY_FASTEST.
+ */
+public class SampleRingBuffer {
+
+    private final float[] data;
+    private final int capacity;
+    private final int maxAxes;
+    private int axisCount;
+    private int head; // Index of the next slot to write
+    private int size;
+
+    /**
+     * @param capacity The number of samples retained
+     * @param maxAxes  The maximum number of values stored per sample
+     */
+    public SampleRingBuffer(int capacity, int maxAxes) {
+        this.capacity = Math.max(1, capacity);
+        this.maxAxes = Math.max(1, maxAxes);
+        this.data = new float[this.capacity * this.maxAxes];
+    }
+
+    /**
+     * Appends a sample, overwriting the oldest one when the buffer is full
+     *
+     * @param values The sample values; values beyond the axis limit are ignored
+     */
+    public void add(float[] values) {
+        add(values, values.length);
+    }
+
+    /**
+     * Appends the leading values of a reused array as a sample
+     *
+     * @param values The sample values
+     * @param count  Number of valid entries in values
+     */
+    public void add(float[] values, int count) {
+        int axes = Math.min(count, maxAxes);
+        if (axes > axisCount) {
+            axisCount = axes;
+        }
+        int offset = head * maxAxes;
+        for (int axis = 0; axis < axes; axis++) {
+            data[offset + axis] = values[axis];
+        }
+        head = (head + 1) % capacity;
+        if (size < capacity) {
+            size++;
+        }
+    }
+
+    /**
+     * Gets a retained value
+     *
+     * @param index The sample index, 0 being the oldest retained sample
+     * @param axis  The axis
+     * @return The stored value
+     */
+    public float get(int index, int axis) {
+        int slot = (head - size + index + capacity) % capacity;
+        return data[slot * maxAxes + axis];
+    }
+
+    /**
+     * Copies one axis of all retained samples, oldest first
+     *
+     * @param axis        The axis to copy
+     * @param destination Array of at least {@link #size()} elements
+     * @return The number of values copied
+     */
+    public int copyAxis(int axis, float[] destination) {
+        for (int i = 0; i < size; i++) {
+            destination[i] = get(i, axis);
+        }
+        return size;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+        axisCount = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getAxisCount() {
+        return axisCount;
+    }
+}
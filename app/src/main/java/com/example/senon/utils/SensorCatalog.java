@@ -0,0 +1,194 @@
+package com.example.senon.utils;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.os.Build;
+import android.util.Log;
+
+import com.example.senon.model.SensorItem;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Persisted result of filtering and classifying the device's sensor list.
+ *
+ * The sensor list only changes with the system image, so the classified list
+ * is stored together with Build.FINGERPRINT and the installed APK path (icon
+ * resource ids can change with an app update). Loading it replaces the string
+ * matching in {@link #isGenericSensor} with a few index lookups into
+ * getSensorList(Sensor.TYPE_ALL).
+ */
+public class SensorCatalog {
+
+    private static final String TAG = "SensorCatalog";
+    private static final String FILE_NAME = "sensor_catalog.bin";
+    private static final int FORMAT_VERSION = 1; // Bump when the classification rules change
+
+    private final File file;
+    private final String key;
+
+    public SensorCatalog(Context context) {
+        this.file = new File(context.getFilesDir(), FILE_NAME);
+        this.key = Build.FINGERPRINT + "|" + context.getApplicationInfo().sourceDir;
+    }
+
+    /**
+     * Loads the stored catalog
+     *
+     * @param allSensors The result of getSensorList(Sensor.TYPE_ALL)
+     * @return The catalogued sensor items, or null if there is no catalog or it
+     * does not match this device, build or sensor list
+     */
+    public List<SensorItem> load(List<Sensor> allSensors) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != FORMAT_VERSION || !key.equals(input.readUTF())
+                    || input.readInt() != allSensors.size()) {
+                return null;
+            }
+
+            int count = input.readInt();
+            List<SensorItem> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int listIndex = input.readInt();
+                int sensorType = input.readInt();
+                int displayPriority = input.readInt();
+                int iconResId = input.readInt();
+
+                // Cheap guard against a reordered list with the same size
+                if (listIndex < 0 || listIndex >= allSensors.size()
+                        || allSensors.get(listIndex).getType() != sensorType) {
+                    return null;
+                }
+                items.add(new SensorItem(allSensors.get(listIndex), iconResId, displayPriority));
+            }
+            return items;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read sensor catalog: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the classified sensor items. Performs file I/O, so call it off the
+     * main thread.
+     *
+     * @param allSensors The result of getSensorList(Sensor.TYPE_ALL)
+     * @param items      The items built by {@link #classify}
+     */
+    public void save(List<Sensor> allSensors, List<SensorItem> items) {
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            output.writeInt(FORMAT_VERSION);
+            output.writeUTF(key);
+            output.writeInt(allSensors.size());
+            output.writeInt(items.size());
+            for (SensorItem item : items) {
+                output.writeInt(allSensors.indexOf(item.getSensor()));
+                output.writeInt(item.getSensorType());
+                output.writeInt(item.getDisplayPriority());
+                output.writeInt(item.getIconResId());
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write sensor catalog: " + e.getMessage());
+            return;
+        }
+
+        // Replace atomically so a crash never leaves a half-written catalog
+        if (!tempFile.renameTo(file)) {
+            Log.w(TAG, "Failed to replace sensor catalog");
+        }
+    }
+
+    /**
+     * Filters the sensor list down to the generic sensors and builds their
+     * display items, in sensor list order
+     */
+    public static List<SensorItem> classify(List<Sensor> allSensors) {
+        List<SensorItem> items = new ArrayList<>();
+        for (Sensor sensor : allSensors) {
+            if (isGenericSensor(sensor)) {
+                int sensorType = sensor.getType();
+                items.add(new SensorItem(sensor, SensorIconMapper.getIconForSensorType(sensorType),
+                        SensorIconMapper.getDisplayPriority(sensorType)));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Checks whether two item lists show the same sensors in the same order
+     */
+    public static boolean isSameSensors(List<SensorItem> first, List<SensorItem> second) {
+        if (first.size() != second.size()) {
+            return false;
+        }
+        for (int i = 0; i < first.size(); i++) {
+            if (first.get(i).getSensor() != second.get(i).getSensor()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static boolean isGenericSensor(Sensor sensor) {
+        String sensorName = sensor.getName().toLowerCase(Locale.ROOT);
+        String vendor = sensor.getVendor().toLowerCase(Locale.ROOT);
+
+        // Filter out brand-specific sensors
+        if (sensorName.contains("samsung") || sensorName.contains("aois") ||
+                sensorName.contains("scontext") || sensorName.contains("grip") ||
+                sensorName.contains("hover") || sensorName.contains("flip") ||
+                sensorName.contains("call gesture") || sensorName.contains("pocket") ||
+                sensorName.contains("hall") || sensorName.contains("protos") ||
+                sensorName.contains("vdis") || sensorName.contains("supersteady") ||
+                sensorName.contains("tcs3701") || sensorName.contains("isg5320a")) {
+            return false;
+        }
+
+        // Filter out vendor-specific sensors
+        if (vendor.contains("samsung") &&
+                (sensorName.contains("seamless") || sensorName.contains("auto brightness") ||
+                        sensorName.contains("motion") || sensorName.contains("gesture"))) {
+            return false;
+        }
+
+        // Only include standard Android sensor types
+        int sensorType = sensor.getType();
+        return sensorType == Sensor.TYPE_ACCELEROMETER ||
+                sensorType == Sensor.TYPE_GYROSCOPE ||
+                sensorType == Sensor.TYPE_MAGNETIC_FIELD ||
+                sensorType == Sensor.TYPE_LIGHT ||
+                sensorType == Sensor.TYPE_PROXIMITY ||
+                sensorType == Sensor.TYPE_PRESSURE ||
+                sensorType == Sensor.TYPE_ROTATION_VECTOR ||
+                sensorType == Sensor.TYPE_LINEAR_ACCELERATION ||
+                sensorType == Sensor.TYPE_GRAVITY ||
+                sensorType == Sensor.TYPE_AMBIENT_TEMPERATURE ||
+                sensorType == Sensor.TYPE_RELATIVE_HUMIDITY ||
+                sensorType == Sensor.TYPE_STEP_COUNTER ||
+                sensorType == Sensor.TYPE_STEP_DETECTOR ||
+                sensorType == Sensor.TYPE_SIGNIFICANT_MOTION ||
+                sensorType == Sensor.TYPE_GAME_ROTATION_VECTOR ||
+                sensorType == Sensor.TYPE_GYROSCOPE_UNCALIBRATED ||
+                sensorType == Sensor.TYPE_MAGNETIC_FIELD_UNCALIBRATED ||
+                sensorType == Sensor.TYPE_ACCELEROMETER_UNCALIBRATED ||
+                sensorType == Sensor.TYPE_HEART_RATE ||
+                sensorType == Sensor.TYPE_STATIONARY_DETECT ||
+                sensorType == Sensor.TYPE_MOTION_DETECT ||
+                sensorType == Sensor.TYPE_HEART_BEAT;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.senon.utils;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+/**
+ * Owns the background thread that every SensorEventListener in the app is
+ * registered on. Registering without a Handler delivers events on the main
+ * looper, where they compete with RecyclerView layout and drawing; routing
+ * them here keeps event delivery and UI frames from delaying each other.
+ * Listeners must post only UI-bound work back to the main thread.
+ */
+public class SensorDispatcher {
+
+    private static final String THREAD_NAME = "SensorDispatch";
+
+    private static HandlerThread dispatchThread;
+    private static Handler dispatchHandler;
+
+    /**
+     * Gets the handler to pass to SensorManager.registerListener
+     *
+     * @return The shared sensor dispatch handler, started on first use
+     */
+    public static synchronized Handler getHandler() {
+        if (dispatchHandler == null) {
+            // Display priority, the same as the UI pipeline, so sensor delivery is not starved by background work
+            dispatchThread = new HandlerThread(THREAD_NAME, Process.THREAD_PRIORITY_DISPLAY);
+            dispatchThread.start();
+            dispatchHandler = new Handler(dispatchThread.getLooper());
+        }
+        return dispatchHandler;
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.senon.utils;
+
+import com.example.senon.model.SensorItem;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Search index over a sensor list, built once per list.
+ *
+ * The name, vendor, type and category of every item are normalized up front
+ * (lowercased, punctuation turned into spaces) into one searchable text and
+ * its word tokens, so a keystroke only normalizes the query. Each query term
+ * must match the item as a substring (which covers prefixes) or, for terms of
+ * three or more characters, fuzzily as an in-order subsequence of a token
+ * starting with the same letter ("accl" finds "accelerometer").
+ *
+ * Matching is monotonic: an item matching a query also matches every prefix
+ * of it. When a query extends the previous one, only the previous matches are
+ * rechecked, unless the extension enables fuzzy matching for a term. Not
+ * thread safe.
+ */
+public class SensorSearchIndex {
+
+    private static final int MIN_FUZZY_LENGTH = 3;
+
+    private final String[] texts;
+    private final String[][] tokens;
+    private final boolean[] matches;
+    private String currentQuery = "";
+
+    /**
+     * @param items The items to index; positions in this list are the indexes
+     *              passed to {@link #matches}
+     */
+    public SensorSearchIndex(List<SensorItem> items) {
+        this(describe(items));
+    }
+
+    /**
+     * @param descriptions Searchable text of every item, in index order
+     */
+    SensorSearchIndex(String[] descriptions) {
+        int count = descriptions.length;
+        texts = new String[count];
+        tokens = new String[count][];
+        matches = new boolean[count];
+
+        for (int i = 0; i < count; i++) {
+            String text = normalize(descriptions[i]);
+            texts[i] = text;
+            tokens[i] = text.isEmpty() ? new String[0] : text.split(" ");
+            matches[i] = true;
+        }
+    }
+
+    private static String[] describe(List<SensorItem> items) {
+        String[] descriptions = new String[items.size()];
+        for (int i = 0; i < descriptions.length; i++) {
+            SensorItem item = items.get(i);
+            descriptions[i] = item.getSensorName() + " " + item.getSensorVendor() + " "
+                    + item.getSensorTypeString() + " "
+                    + SensorIconMapper.getSensorCategory(item.getSensorType()).name();
+        }
+        return descriptions;
+    }
+
+    /**
+     * Sets the query that {@link #matches} answers for
+     *
+     * @param query The raw query, or null for none
+     * @return Whether the query filters anything, i.e. is not blank
+     */
+    public boolean setQuery(String query) {
+        String normalized = query != null ? normalize(query) : "";
+        if (normalized.equals(currentQuery)) {
+            return !normalized.isEmpty();
+        }
+
+        boolean narrowing = canNarrow(currentQuery, normalized);
+        currentQuery = normalized;
+        if (normalized.isEmpty()) {
+            for (int i = 0; i < matches.length; i++) {
+                matches[i] = true;
+            }
+            return false;
+        }
+
+        String[] terms = normalized.split(" ");
+        for (int i = 0; i < matches.length; i++) {
+            // A narrowed query can only lose matches
+            if (narrowing && !matches[i]) {
+                continue;
+            }
+            matches[i] = matchesAllTerms(i, terms);
+        }
+        return true;
+    }
+
+    /**
+     * @param index Position of the item in the indexed list
+     * @return Whether the item matches the current query
+     */
+    public boolean matches(int index) {
+        return matches[index];
+    }
+
+    public int size() {
+        return matches.length;
+    }
+
+    /**
+     * Checks whether the next query can only match a subset of the previous
+     * one. That holds for extensions, except when the last term grows long
+     * enough for fuzzy matching, which can add matches.
+     */
+    private static boolean canNarrow(String previous, String next) {
+        if (previous.isEmpty() || !next.startsWith(previous)) {
+            return false;
+        }
+        int termStart = previous.lastIndexOf(' ') + 1;
+        int previousLength = previous.length() - termStart;
+        int nextEnd = next.indexOf(' ', termStart);
+        int nextLength = (nextEnd < 0 ? next.length() : nextEnd) - termStart;
+        return previousLength >= MIN_FUZZY_LENGTH || nextLength < MIN_FUZZY_LENGTH;
+    }
+
+    private boolean matchesAllTerms(int index, String[] terms) {
+        for (String term : terms) {
+            if (!matchesTerm(index, term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matchesTerm(int index, String term) {
+        if (texts[index].contains(term)) {
+            return true;
+        }
+        if (term.length() < MIN_FUZZY_LENGTH) {
+            return false;
+        }
+        for (String token : tokens[index]) {
+            if (token.charAt(0) == term.charAt(0) && isSubsequence(term, token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSubsequence(String term, String token) {
+        int matched = 0;
+        for (int i = 0; i < token.length() && matched < term.length(); i++) {
+            if (token.charAt(i) == term.charAt(matched)) {
+                matched++;
+            }
+        }
+        return matched == term.length();
+    }
+
+    /**
+     * Lowercases the text and reduces it to single-space separated runs of
+     * letters and digits
+     */
+    static String normalize(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        StringBuilder normalized = new StringBuilder(lower.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                pendingSpace = false;
+                normalized.append(c);
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return normalized.toString();
+    }
+}
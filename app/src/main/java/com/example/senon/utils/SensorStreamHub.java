@@ -0,0 +1,356 @@
+package com.example.senon.utils;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Handler;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process-wide multiplexer that holds a single SensorManager registration per
+ * sensor and fans its events out to any number of subscribers.
+ *
+ * The registration runs at the fastest sampling period and shortest report
+ * latency requested by the current subscribers. Subscribers of continuous
+ * sensors that asked for a slower period receive a decimated stream. When the
+ * last subscriber leaves, the registration lingers briefly, so handing a
+ * sensor from one screen to the next does not deactivate and re-activate it.
+ *
+ * Rate changes register the new rate before dropping the old one, so
+ * subscribers never see a gap. Events are delivered on the shared sensor
+ * dispatch thread; subscribing and closing may happen on any thread.
+ */
+public class SensorStreamHub {
+
+    private static final String TAG = "SensorStreamHub";
+    private static final long LINGER_MS = 3000;
+
+    private static SensorStreamHub instance;
+
+    private final SensorManager sensorManager;
+    private final Handler handler = SensorDispatcher.getHandler();
+    private final Map<Sensor, Stream> streams = new HashMap<>();
+
+    private SensorStreamHub(SensorManager sensorManager) {
+        this.sensorManager = sensorManager;
+    }
+
+    public static synchronized SensorStreamHub getInstance(Context context) {
+        if (instance == null) {
+            SensorManager sensorManager = (SensorManager) context.getApplicationContext()
+                    .getSystemService(Context.SENSOR_SERVICE);
+            instance = new SensorStreamHub(sensorManager);
+        }
+        return instance;
+    }
+
+    /**
+     * Subscribes to a sensor's events
+     *
+     * @param samplingPeriodUs Sampling period in microseconds, or one of the
+     *                         SensorManager.SENSOR_DELAY_* constants
+     * @param listener         Receives the events on the sensor dispatch thread
+     * @return The subscription, or null if the sensor could not be registered
+     */
+    public Subscription subscribe(Sensor sensor, int samplingPeriodUs, SensorEventListener listener) {
+        return subscribe(sensor, samplingPeriodUs, 0, listener);
+    }
+
+    /**
+     * Subscribes to a sensor's events, allowing them to be batched
+     *
+     * @param samplingPeriodUs   Sampling period in microseconds, or one of the
+     *                           SensorManager.SENSOR_DELAY_* constants
+     * @param maxReportLatencyUs Longest time events may be held in the FIFO
+     * @param listener           Receives the events on the sensor dispatch thread
+     * @return The subscription, or null if the sensor could not be registered
+     */
+    public synchronized Subscription subscribe(Sensor sensor, int samplingPeriodUs, int maxReportLatencyUs,
+                                               SensorEventListener listener) {
+        Stream stream = streams.get(sensor);
+        if (stream == null) {
+            stream = new Stream(sensor);
+            streams.put(sensor, stream);
+        }
+
+        Subscription subscription = new Subscription(this, stream, listener,
+                toPeriodUs(samplingPeriodUs), maxReportLatencyUs);
+        stream.add(subscription);
+        if (!updateRegistration(stream)) {
+            stream.remove(subscription);
+            updateRegistration(stream);
+            return null;
+        }
+        return subscription;
+    }
+
+    /**
+     * Converts the SensorManager.SENSOR_DELAY_* constants to microseconds, the
+     * same way SensorManager does
+     */
+    public static int toPeriodUs(int samplingPeriodUs) {
+        switch (samplingPeriodUs) {
+            case SensorManager.SENSOR_DELAY_FASTEST:
+                return 0;
+            case SensorManager.SENSOR_DELAY_GAME:
+                return 20000;
+            case SensorManager.SENSOR_DELAY_UI:
+                return 66667;
+            case SensorManager.SENSOR_DELAY_NORMAL:
+                return 200000;
+            default:
+                return samplingPeriodUs;
+        }
+    }
+
+    private synchronized void changeRate(Subscription subscription, int samplingPeriodUs, int maxReportLatencyUs) {
+        if (subscription.closed) {
+            return;
+        }
+        subscription.applyRate(toPeriodUs(samplingPeriodUs), maxReportLatencyUs);
+        updateRegistration(subscription.stream);
+    }
+
+    private synchronized void close(Subscription subscription) {
+        if (subscription.closed) {
+            return;
+        }
+        subscription.closed = true;
+        subscription.stream.remove(subscription);
+        updateRegistration(subscription.stream);
+    }
+
+    /**
+     * Brings the stream's registration in line with its subscribers
+     *
+     * @return Whether the stream is registered as its subscribers require
+     */
+    private boolean updateRegistration(Stream stream) {
+        Subscription[] subscribers = stream.subscribers;
+        if (subscribers.length == 0) {
+            // Keep the sensor running for a moment in case a new subscriber takes over
+            if (stream.pendingRelease == null && stream.listener != null) {
+                stream.pendingRelease = () -> releaseIfUnused(stream);
+                handler.postDelayed(stream.pendingRelease, LINGER_MS);
+            } else if (stream.listener == null) {
+                streams.remove(stream.sensor);
+            }
+            return true;
+        }
+
+        if (stream.pendingRelease != null) {
+            handler.removeCallbacks(stream.pendingRelease);
+            stream.pendingRelease = null;
+        }
+
+        int periodUs = Integer.MAX_VALUE;
+        int latencyUs = Integer.MAX_VALUE;
+        for (Subscription subscription : subscribers) {
+            periodUs = Math.min(periodUs, subscription.periodUs);
+            latencyUs = Math.min(latencyUs, subscription.maxReportLatencyUs);
+        }
+        if (stream.listener != null && periodUs == stream.periodUs && latencyUs == stream.latencyUs) {
+            return true;
+        }
+
+        // Register the new rate first, then drop the old registration
+        StreamListener listener = new StreamListener(stream);
+        if (!sensorManager.registerListener(listener, stream.sensor, periodUs, latencyUs, handler)) {
+            Log.w(TAG, "Failed to register " + stream.sensor.getName() + " at " + periodUs + "us");
+            return stream.listener != null && periodUs >= stream.periodUs;
+        }
+        StreamListener previous = stream.listener;
+        stream.periodUs = periodUs;
+        stream.latencyUs = latencyUs;
+        stream.listener = listener;
+        if (previous != null) {
+            sensorManager.unregisterListener(previous, stream.sensor);
+        }
+        return true;
+    }
+
+    private synchronized void releaseIfUnused(Stream stream) {
+        stream.pendingRelease = null;
+        if (stream.subscribers.length == 0 && stream.listener != null) {
+            sensorManager.unregisterListener(stream.listener, stream.sensor);
+            stream.listener = null;
+            streams.remove(stream.sensor);
+        }
+    }
+
+    /**
+     * A consumer's share of a sensor stream
+     */
+    public static class Subscription {
+        private final SensorStreamHub hub;
+        private final Stream stream;
+        private final SensorEventListener listener;
+        private final boolean decimate;
+        private final Decimator decimator = new Decimator();
+        private volatile int periodUs;
+        private volatile int maxReportLatencyUs;
+        private volatile boolean closed;
+
+        Subscription(SensorStreamHub hub, Stream stream, SensorEventListener listener,
+                     int periodUs, int maxReportLatencyUs) {
+            this.hub = hub;
+            this.stream = stream;
+            this.listener = listener;
+            this.decimate = stream.sensor.getReportingMode() == Sensor.REPORTING_MODE_CONTINUOUS;
+            applyRate(periodUs, maxReportLatencyUs);
+        }
+
+        /**
+         * Changes the rate this subscriber needs, re-registering the sensor if
+         * that changes the fastest requested rate
+         */
+        public void setRate(int samplingPeriodUs, int maxReportLatencyUs) {
+            hub.changeRate(this, samplingPeriodUs, maxReportLatencyUs);
+        }
+
+        private void applyRate(int periodUs, int maxReportLatencyUs) {
+            this.periodUs = periodUs;
+            this.maxReportLatencyUs = maxReportLatencyUs;
+            decimator.setPeriod(periodUs * 1000L);
+        }
+
+        public Sensor getSensor() {
+            return stream.sensor;
+        }
+
+        /**
+         * Stops delivery to this subscriber. The registration ends once no
+         * subscribers are left for a short while.
+         */
+        public void close() {
+            hub.close(this);
+        }
+
+        void deliver(SensorEvent event, long streamPeriodNs) {
+            if (closed) {
+                return;
+            }
+            if (decimate && !decimator.accept(event.timestamp, streamPeriodNs)) {
+                return;
+            }
+            listener.onSensorChanged(event);
+        }
+
+        void deliverAccuracy(Sensor sensor, int accuracy) {
+            if (!closed) {
+                listener.onAccuracyChanged(sensor, accuracy);
+            }
+        }
+    }
+
+    /**
+     * Thins a continuous stream down to a subscriber's slower period. The first
+     * event after a rate change always passes, so the spacing is measured from
+     * an event that was actually delivered.
+     */
+    static final class Decimator {
+        private volatile long periodNs;
+        private volatile boolean hasDelivered;
+        private long lastDeliveredNs;
+
+        void setPeriod(long periodNs) {
+            this.periodNs = periodNs;
+            hasDelivered = false;
+        }
+
+        /**
+         * @return Whether the event at this timestamp should be delivered
+         */
+        boolean accept(long timestampNs, long streamPeriodNs) {
+            long period = periodNs;
+            // Allow half a stream period of jitter before skipping an event
+            if (hasDelivered && period > streamPeriodNs
+                    && timestampNs - lastDeliveredNs < period - streamPeriodNs / 2) {
+                return false;
+            }
+            lastDeliveredNs = timestampNs;
+            hasDelivered = true;
+            return true;
+        }
+    }
+
+    /**
+     * The registration state and subscribers of one sensor. Structural
+     * changes happen under the hub lock; delivery reads the copy-on-write
+     * subscriber array without locking.
+     */
+    static class Stream {
+        private static final Subscription[] NONE = new Subscription[0];
+
+        final Sensor sensor;
+        volatile Subscription[] subscribers = NONE;
+        volatile StreamListener listener;
+        volatile int periodUs;
+        int latencyUs;
+        Runnable pendingRelease;
+
+        Stream(Sensor sensor) {
+            this.sensor = sensor;
+        }
+
+        void add(Subscription subscription) {
+            Subscription[] updated = Arrays.copyOf(subscribers, subscribers.length + 1);
+            updated[updated.length - 1] = subscription;
+            subscribers = updated;
+        }
+
+        void remove(Subscription subscription) {
+            Subscription[] current = subscribers;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == subscription) {
+                    Subscription[] updated = new Subscription[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                    subscribers = updated;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Listener of one registration. Replaced on each rate change, so the old
+     * and new registration can briefly overlap; only the current one delivers.
+     */
+    private static class StreamListener implements SensorEventListener {
+        private final Stream stream;
+
+        StreamListener(Stream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public void onSensorChanged(SensorEvent event) {
+            if (stream.listener != this) {
+                return;
+            }
+            long streamPeriodNs = stream.periodUs * 1000L;
+            Subscription[] subscribers = stream.subscribers;
+            for (Subscription subscription : subscribers) {
+                subscription.deliver(event, streamPeriodNs);
+            }
+        }
+
+        @Override
+        public void onAccuracyChanged(Sensor sensor, int accuracy) {
+            if (stream.listener != this) {
+                return;
+            }
+            Subscription[] subscribers = stream.subscribers;
+            for (Subscription subscription : subscribers) {
+                subscription.deliverAccuracy(sensor, accuracy);
+            }
+        }
+    }
+}
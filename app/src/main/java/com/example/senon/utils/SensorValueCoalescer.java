@@ -0,0 +1,160 @@
+package com.example.senon.utils;
+
+import android.hardware.Sensor;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collapses live sensor events into at most one UI update per sensor per
+ * display frame.
+ *
+ * Events are written from the sensor dispatch thread into primitive per-sensor
+ * slots that only hold the latest values. The first change after a flush posts
+ * a single Choreographer frame callback, which hands every changed slot to the
+ * listener on the main thread. Events that do not change the value at display
+ * precision never mark their slot dirty, so a resting sensor costs no main
+ * thread work at all.
+ */
+public class SensorValueCoalescer {
+
+    /**
+     * Receives coalesced values on the main thread, once per frame and sensor
+     */
+    public interface Listener {
+        /**
+         * @param sensor The sensor whose displayed value changed
+         * @param values Latest values; only valid for the duration of the call
+         * @param count  Number of valid entries in values
+         */
+        void onSensorValues(Sensor sensor, float[] values, int count);
+    }
+
+    private final Choreographer choreographer;
+    private final Listener listener;
+    private final int valuesPerSensor;
+    private final double displayScale;
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> flush();
+
+    // Guarded by this; written on the sensor dispatch thread
+    private final Map<Sensor, Integer> slotIndex = new HashMap<>();
+    private final List<Sensor> slotSensors = new ArrayList<>();
+    private float[] slotValues = new float[0];
+    private long[] slotQuantized = new long[0];
+    private int[] slotCounts = new int[0];
+    private boolean[] slotDirty = new boolean[0];
+    private boolean frameScheduled;
+
+    // Main thread only
+    private final float[] flushValues;
+
+    /**
+     * Must be created on the main thread so frame callbacks run there
+     *
+     * @param listener          Receives the coalesced values
+     * @param valuesPerSensor   Number of leading values that are displayed
+     * @param displayDecimals   Number of decimals the values are displayed with
+     */
+    public SensorValueCoalescer(Listener listener, int valuesPerSensor, int displayDecimals) {
+        this.choreographer = Choreographer.getInstance();
+        this.listener = listener;
+        this.valuesPerSensor = valuesPerSensor;
+        this.displayScale = Math.pow(10, displayDecimals);
+        this.flushValues = new float[valuesPerSensor];
+    }
+
+    /**
+     * Records the latest values of a sensor. Called on the sensor dispatch thread.
+     */
+    public void offer(Sensor sensor, float[] values) {
+        int count = Math.min(values.length, valuesPerSensor);
+        boolean schedule = false;
+
+        synchronized (this) {
+            int slot = getSlot(sensor);
+            int base = slot * valuesPerSensor;
+            boolean changed = slotCounts[slot] != count;
+            for (int i = 0; i < count; i++) {
+                long quantized = Math.round(values[i] * displayScale);
+                if (quantized != slotQuantized[base + i]) {
+                    slotQuantized[base + i] = quantized;
+                    changed = true;
+                }
+                slotValues[base + i] = values[i];
+            }
+
+            if (!changed) {
+                return;
+            }
+            slotCounts[slot] = count;
+            slotDirty[slot] = true;
+            if (!frameScheduled) {
+                frameScheduled = true;
+                schedule = true;
+            }
+        }
+
+        if (schedule) {
+            choreographer.postFrameCallback(frameCallback);
+        }
+    }
+
+    /**
+     * Drops all pending values and forgets the displayed state, so the next
+     * event of every sensor is shown again
+     */
+    public synchronized void clear() {
+        choreographer.removeFrameCallback(frameCallback);
+        frameScheduled = false;
+        Arrays.fill(slotDirty, false);
+        Arrays.fill(slotCounts, 0);
+        Arrays.fill(slotQuantized, Long.MIN_VALUE);
+    }
+
+    private void flush() {
+        int slotCount;
+        synchronized (this) {
+            frameScheduled = false;
+            slotCount = slotSensors.size();
+        }
+
+        for (int slot = 0; slot < slotCount; slot++) {
+            Sensor sensor;
+            int count;
+            synchronized (this) {
+                if (!slotDirty[slot]) {
+                    continue;
+                }
+                slotDirty[slot] = false;
+                sensor = slotSensors.get(slot);
+                count = slotCounts[slot];
+                System.arraycopy(slotValues, slot * valuesPerSensor, flushValues, 0, count);
+            }
+            listener.onSensorValues(sensor, flushValues, count);
+        }
+    }
+
+    private int getSlot(Sensor sensor) {
+        Integer slot = slotIndex.get(sensor);
+        if (slot != null) {
+            return slot;
+        }
+
+        // First event of this sensor: grow the slot arrays
+        int newSlot = slotSensors.size();
+        slotSensors.add(sensor);
+        slotIndex.put(sensor, newSlot);
+
+        int capacity = (newSlot + 1) * valuesPerSensor;
+        slotValues = Arrays.copyOf(slotValues, capacity);
+        slotQuantized = Arrays.copyOf(slotQuantized, capacity);
+        Arrays.fill(slotQuantized, newSlot * valuesPerSensor, capacity, Long.MIN_VALUE);
+        slotCounts = Arrays.copyOf(slotCounts, newSlot + 1);
+        slotDirty = Arrays.copyOf(slotDirty, newSlot + 1);
+        return newSlot;
+    }
+}
@@ -0,0 +1,510 @@
+package com.example.senon.utils;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records every event of a set of sensors to an append-only binary session
+ * file.
+ *
+ * Events are handed from the sensor dispatch thread to a writer thread
+ * through a single-producer single-consumer ring of primitive arrays, so
+ * neither side locks or allocates per event and a slow page fault on the file
+ * never stalls sensor delivery. The writer encodes the events into
+ * memory-mapped regions of the file, mapped one after the other as the
+ * session grows.
+ *
+ * File layout, little endian: a fixed header of {@link #HEADER_SIZE} bytes
+ * holding the magic, version, flags, base timestamp, start time, committed
+ * length and event count, followed by records. A sensor record is the
+ * {@link #RECORD_SENSOR} tag, the sensor index and type as varints and the
+ * name as a varint length and UTF-8 bytes. An event record is the
+ * {@link #RECORD_EVENT} tag, the sensor index as a varint, the zigzag varint
+ * delta to the previous timestamp of the same sensor (the base timestamp for
+ * its first event), one byte packing accuracy + 1 in the low three bits and
+ * the value count above them, and the values as raw floats.
+ *
+ * The writer advances the committed length in the header after each batch
+ * of complete records, and forces the file to storage once per second. A
+ * session that was not closed cleanly is recovered by truncating it to its
+ * committed length, which only reads the header.
+ */
+public class SessionRecorder {
+
+    private static final String TAG = "SessionRecorder";
+
+    public static final String FILE_EXTENSION = ".snr";
+
+    static final int MAGIC = 0x53524E53;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int OFFSET_VERSION = 4;
+    static final int OFFSET_FLAGS = 6;
+    static final int OFFSET_BASE_TIMESTAMP = 8;
+    static final int OFFSET_START_TIME = 16;
+    static final int OFFSET_COMMITTED_LENGTH = 24;
+    static final int OFFSET_EVENT_COUNT = 32;
+    static final short FLAG_CLOSED = 1;
+
+    static final byte RECORD_SENSOR = 1;
+    static final byte RECORD_EVENT = 2;
+
+    /** Values stored per event; the largest generic sensor event has 16 */
+    public static final int MAX_VALUES = 16;
+
+    // About four seconds of all generic sensors at their fastest rate
+    private static final int RING_CAPACITY = 1 << 15;
+    private static final int RING_MASK = RING_CAPACITY - 1;
+    private static final long REGION_SIZE = 16L << 20;
+    private static final long CHECKPOINT_INTERVAL_NS = 1_000_000_000L;
+    private static final long IDLE_PARK_NS = 2_000_000L;
+    // Tag, index and delta varints, accuracy byte and values
+    private static final int MAX_EVENT_RECORD_SIZE = 1 + 5 + 10 + 1 + MAX_VALUES * 4;
+
+    // Session files being written by this process, which recovery must not touch
+    private static final Set<String> activeFiles = new HashSet<>();
+
+    private final File file;
+
+    // Ring slots, written by the producer below head and read by the consumer below head
+    private final int[] ringSensor = new int[RING_CAPACITY];
+    private final long[] ringTimestamp = new long[RING_CAPACITY];
+    private final byte[] ringAccuracy = new byte[RING_CAPACITY];
+    private final byte[] ringValueCount = new byte[RING_CAPACITY];
+    private final float[] ringValues = new float[RING_CAPACITY * MAX_VALUES];
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private long cachedTail; // Producer's last view of tail
+    private volatile int droppedCount;
+
+    // Writer thread state
+    private RandomAccessFile randomAccessFile;
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer region;
+    private long regionBase;
+    private long position;
+    private long writtenCount;
+    private long baseTimestampNs;
+    private long[] lastTimestamps;
+    private final byte[] scratch = new byte[MAX_EVENT_RECORD_SIZE];
+
+    private List<Sensor> streamable;
+    private final List<SensorStreamHub.Subscription> subscriptions = new ArrayList<>();
+    private Thread writerThread;
+    private volatile boolean accepting;
+    private volatile boolean stopRequested;
+    private volatile boolean failed;
+
+    public SessionRecorder(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Creates the session file for the given sensors. One-shot sensors cannot
+     * be streamed and are left out. This maps the file and writes the sensor
+     * table, so it should run off the main thread; {@link #start} then begins
+     * recording.
+     */
+    public void open(List<Sensor> sensors) throws IOException {
+        streamable = new ArrayList<>(sensors.size());
+        for (Sensor sensor : sensors) {
+            if (sensor.getReportingMode() != Sensor.REPORTING_MODE_ONE_SHOT) {
+                streamable.add(sensor);
+            }
+        }
+
+        synchronized (activeFiles) {
+            activeFiles.add(file.getAbsolutePath());
+        }
+        try {
+            openFile(streamable);
+        } catch (IOException e) {
+            release();
+            throw e;
+        }
+    }
+
+    /**
+     * Subscribes the opened sensors at their fastest rate. A sensor that fails
+     * to register is logged and simply has no events.
+     *
+     * @return Whether at least one sensor could be registered; nothing is recorded otherwise
+     */
+    public boolean start(SensorStreamHub streamHub) {
+        writerThread = new Thread(this::runWriter, "SessionRecorder");
+        writerThread.start();
+
+        accepting = true;
+        for (int i = 0; i < streamable.size(); i++) {
+            SensorStreamHub.Subscription subscription = streamHub.subscribe(streamable.get(i),
+                    SensorManager.SENSOR_DELAY_FASTEST, new SensorChannel(i));
+            if (subscription == null) {
+                Log.w(TAG, "Failed to register " + streamable.get(i).getName() + ", not recording it");
+            } else {
+                subscriptions.add(subscription);
+            }
+        }
+        if (subscriptions.isEmpty()) {
+            stop();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stops recording. The writer thread stores the remaining events and
+     * closes the file on its own, so this does not block. A session that was
+     * opened but never started holds no events and is deleted.
+     */
+    public void stop() {
+        accepting = false;
+        for (SensorStreamHub.Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+        subscriptions.clear();
+        stopRequested = true;
+        if (writerThread != null) {
+            LockSupport.unpark(writerThread);
+        } else if (randomAccessFile != null) {
+            release();
+            randomAccessFile = null;
+            if (!file.delete()) {
+                Log.w(TAG, "Failed to delete unused " + file.getName());
+            }
+        }
+    }
+
+    public boolean isRecording() {
+        return accepting;
+    }
+
+    /**
+     * @return Whether writing failed, e.g. because storage is full
+     */
+    public boolean hasFailed() {
+        return failed;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return Sensors registered for the running recording
+     */
+    public int getSensorCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * @return Events accepted for recording so far
+     */
+    public long getRecordedCount() {
+        return head.get();
+    }
+
+    /**
+     * @return Events lost because the writer fell behind by a full ring
+     */
+    public int getDroppedCount() {
+        return droppedCount;
+    }
+
+    private void openFile(List<Sensor> sensors) throws IOException {
+        File directory = file.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        channel = randomAccessFile.getChannel();
+
+        baseTimestampNs = SystemClock.elapsedRealtimeNanos();
+        lastTimestamps = new long[sensors.size()];
+        for (int i = 0; i < lastTimestamps.length; i++) {
+            lastTimestamps[i] = baseTimestampNs;
+        }
+
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0, MAGIC);
+        header.putShort(OFFSET_VERSION, VERSION);
+        header.putShort(OFFSET_FLAGS, (short) 0);
+        header.putLong(OFFSET_BASE_TIMESTAMP, baseTimestampNs);
+        header.putLong(OFFSET_START_TIME, System.currentTimeMillis());
+        position = HEADER_SIZE;
+        regionBase = HEADER_SIZE;
+        region = channel.map(FileChannel.MapMode.READ_WRITE, regionBase, REGION_SIZE);
+
+        // The sensor table goes first, so readers can name the events that follow
+        for (int i = 0; i < sensors.size(); i++) {
+            Sensor sensor = sensors.get(i);
+            byte[] name = sensor.getName().getBytes(StandardCharsets.UTF_8);
+            byte[] record = new byte[1 + 5 + 5 + 5 + name.length];
+            int length = 0;
+            record[length++] = RECORD_SENSOR;
+            length = putVarint(record, length, i);
+            length = putVarint(record, length, sensor.getType());
+            length = putVarint(record, length, name.length);
+            System.arraycopy(name, 0, record, length, name.length);
+            write(record, length + name.length);
+        }
+        commit();
+    }
+
+    /**
+     * Copies an event into the ring. Called on the sensor dispatch thread,
+     * which is the only producer.
+     */
+    private void offer(int sensorIndex, SensorEvent event) {
+        if (!accepting) {
+            return;
+        }
+        long next = head.get();
+        if (next - cachedTail >= RING_CAPACITY) {
+            cachedTail = tail.get();
+            if (next - cachedTail >= RING_CAPACITY) {
+                droppedCount++;
+                return;
+            }
+        }
+
+        int slot = (int) (next & RING_MASK);
+        int valueCount = Math.min(event.values.length, MAX_VALUES);
+        ringSensor[slot] = sensorIndex;
+        ringTimestamp[slot] = event.timestamp;
+        ringAccuracy[slot] = (byte) event.accuracy;
+        ringValueCount[slot] = (byte) valueCount;
+        System.arraycopy(event.values, 0, ringValues, slot * MAX_VALUES, valueCount);
+        // Ordered store: the slot is visible to the writer before the new head
+        head.lazySet(next + 1);
+    }
+
+    private void runWriter() {
+        long lastCheckpointNs = System.nanoTime();
+        try {
+            while (true) {
+                long next = tail.get();
+                long available = head.get();
+                if (next == available) {
+                    if (stopRequested && head.get() == next) {
+                        break;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NS);
+                } else {
+                    for (; next < available; next++) {
+                        writeEvent((int) (next & RING_MASK));
+                    }
+                    tail.lazySet(available);
+                    commit();
+                }
+
+                long now = System.nanoTime();
+                if (now - lastCheckpointNs >= CHECKPOINT_INTERVAL_NS) {
+                    lastCheckpointNs = now;
+                    region.force();
+                    header.force();
+                }
+            }
+            close();
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Recording to " + file.getName() + " failed", e);
+            failed = true;
+            accepting = false;
+            release();
+        }
+    }
+
+    private void writeEvent(int slot) throws IOException {
+        int sensorIndex = ringSensor[slot];
+        long timestamp = ringTimestamp[slot];
+        int valueCount = ringValueCount[slot];
+
+        int length = 0;
+        scratch[length++] = RECORD_EVENT;
+        length = putVarint(scratch, length, sensorIndex);
+        length = putVarLong(scratch, length, zigzag(timestamp - lastTimestamps[sensorIndex]));
+        lastTimestamps[sensorIndex] = timestamp;
+        scratch[length++] = (byte) (((ringAccuracy[slot] + 1) & 0x7) | (valueCount << 3));
+        int valueOffset = slot * MAX_VALUES;
+        for (int i = 0; i < valueCount; i++) {
+            int bits = Float.floatToRawIntBits(ringValues[valueOffset + i]);
+            scratch[length++] = (byte) bits;
+            scratch[length++] = (byte) (bits >>> 8);
+            scratch[length++] = (byte) (bits >>> 16);
+            scratch[length++] = (byte) (bits >>> 24);
+        }
+        write(scratch, length);
+        writtenCount++;
+    }
+
+    /**
+     * Appends bytes at the write position, mapping the next region when the
+     * current one is full. Records may span two regions. A full region is
+     * forced before it is left, so the committed length never covers records
+     * that only lived in an earlier region's dirty pages.
+     */
+    private void write(byte[] bytes, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            if (!region.hasRemaining()) {
+                // The checkpoint only forces the current region, so the full one is stored now
+                region.force();
+                regionBase += REGION_SIZE;
+                region = channel.map(FileChannel.MapMode.READ_WRITE, regionBase, REGION_SIZE);
+            }
+            int count = Math.min(region.remaining(), length - offset);
+            region.put(bytes, offset, count);
+            offset += count;
+        }
+        position += length;
+    }
+
+    /**
+     * Publishes the records written so far. Only complete records lie below
+     * the committed length.
+     */
+    private void commit() {
+        header.putLong(OFFSET_EVENT_COUNT, writtenCount);
+        header.putLong(OFFSET_COMMITTED_LENGTH, position);
+    }
+
+    private void close() throws IOException {
+        commit();
+        header.putShort(OFFSET_FLAGS, FLAG_CLOSED);
+        region.force();
+        header.force();
+        // Drop the unused tail of the last mapped region
+        channel.truncate(position);
+        Log.d(TAG, "Recorded " + writtenCount + " events to " + file.getName() + " (" + position + " bytes, "
+                + droppedCount + " dropped)");
+        release();
+    }
+
+    private void release() {
+        try {
+            if (randomAccessFile != null) {
+                randomAccessFile.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to close " + file.getName(), e);
+        }
+        synchronized (activeFiles) {
+            activeFiles.remove(file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Closes a session file that was not closed cleanly, e.g. after the
+     * process was killed, by truncating it to its committed length. Only the
+     * header is read, so this takes the same time for any file size.
+     *
+     * @return Number of events in the session
+     * @throws IOException If the file is not a session file or cannot be written
+     */
+    public static long recover(File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = randomAccessFile.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.read(buffer, 0) < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException(file.getName() + " is not a session file");
+            }
+
+            short flags = buffer.getShort(OFFSET_FLAGS);
+            long eventCount = buffer.getLong(OFFSET_EVENT_COUNT);
+            if ((flags & FLAG_CLOSED) == 0) {
+                long committed = Math.max(HEADER_SIZE, Math.min(buffer.getLong(OFFSET_COMMITTED_LENGTH), channel.size()));
+                channel.truncate(committed);
+                buffer.clear();
+                buffer.putShort(0, (short) (flags | FLAG_CLOSED)).limit(2);
+                channel.write(buffer, OFFSET_FLAGS);
+                channel.force(true);
+            }
+            return eventCount;
+        }
+    }
+
+    /**
+     * Recovers every unfinished session file in a directory, skipping those
+     * still being recorded by this process
+     *
+     * @return Number of files recovered or already closed
+     */
+    public static int recoverAll(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+        if (files == null) {
+            return 0;
+        }
+        int recovered = 0;
+        for (File file : files) {
+            synchronized (activeFiles) {
+                if (activeFiles.contains(file.getAbsolutePath())) {
+                    continue;
+                }
+            }
+            try {
+                recover(file);
+                recovered++;
+            } catch (IOException e) {
+                Log.w(TAG, "Could not recover " + file.getName(), e);
+            }
+        }
+        return recovered;
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static int putVarint(byte[] bytes, int offset, int value) {
+        return putVarLong(bytes, offset, value & 0xFFFFFFFFL);
+    }
+
+    static int putVarLong(byte[] bytes, int offset, long value) {
+        while ((value & ~0x7FL) != 0) {
+            bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte) value;
+        return offset;
+    }
+
+    /**
+     * Feeds one sensor's events into the ring under its index in the sensor table
+     */
+    private class SensorChannel implements SensorEventListener {
+        private final int sensorIndex;
+
+        SensorChannel(int sensorIndex) {
+            this.sensorIndex = sensorIndex;
+        }
+
+        @Override
+        public void onSensorChanged(SensorEvent event) {
+            offer(sensorIndex, event);
+        }
+
+        @Override
+        public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        }
+    }
+}
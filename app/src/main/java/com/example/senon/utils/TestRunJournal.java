@@ -0,0 +1,274 @@
+package com.example.senon.utils;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.senon.model.TestResult;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only on-disk journal of the results of an auto test run, so that a
+ * run killed by the system can be resumed after the last completed sensor.
+ *
+ * The file holds a header identifying the tested sensor list followed by one
+ * checksummed record per result. Records are flushed as they are written but
+ * only fsynced in batches; a record torn by process death fails its checksum
+ * and is dropped on load.
+ *
+ * Journals for the same file share an owner lock. A run holds it from before
+ * it loads the journal until it has closed or discarded it, so a run started
+ * by a recreated screen waits for the interrupted run of the old screen to
+ * finish unwinding instead of racing it on the file.
+ */
+public class TestRunJournal {
+
+    private static final String TAG = "TestRunJournal";
+    private static final String FILE_NAME = "auto_test_journal.bin";
+    private static final int MAGIC = 0x534E4A31; // "SNJ1"
+    private static final int HEADER_SIZE = 4 + 4 + 8;
+    private static final int SYNC_BATCH_SIZE = 8;
+    private static final long SYNC_INTERVAL_MS = 2000;
+
+    // Owner locks by journal path, shared by every instance for the same file
+    private static final Map<String, Semaphore> OWNER_LOCKS = new ConcurrentHashMap<>();
+
+    private final File file;
+    private final Semaphore ownerLock;
+    private FileOutputStream fileStream;
+    private DataOutputStream output;
+    private int unsyncedRecords;
+    private long lastSyncTime;
+
+    public TestRunJournal(File file) {
+        this.file = file;
+        this.ownerLock = OWNER_LOCKS.computeIfAbsent(file.getAbsolutePath(), path -> new Semaphore(1));
+    }
+
+    public static TestRunJournal forContext(Context context) {
+        return new TestRunJournal(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    /**
+     * Waits until no other run uses the journal file and takes it over. Must
+     * be paired with {@link #release} once the journal is closed or discarded.
+     *
+     * @throws InterruptedException If interrupted while waiting; the journal
+     *                              is not owned then
+     */
+    public void acquire() throws InterruptedException {
+        ownerLock.acquire();
+    }
+
+    /**
+     * Hands the journal file over to the next waiting run
+     */
+    public void release() {
+        ownerLock.release();
+    }
+
+    /**
+     * Reads the results journaled for the given sensor list
+     *
+     * @param sensors The sensors of the run to resume
+     * @return The restored results; empty if there is no journal or it belongs
+     * to a different sensor list
+     */
+    public synchronized Checkpoint load(List<Sensor> sensors) {
+        Map<Integer, TestResult> results = new HashMap<>();
+        long validLength = 0;
+        if (!file.exists()) {
+            return new Checkpoint(results, validLength);
+        }
+
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            if (input.readInt() != MAGIC || input.readInt() != sensors.size()
+                    || input.readLong() != computeSignature(sensors)) {
+                return new Checkpoint(results, validLength);
+            }
+            validLength = HEADER_SIZE;
+
+            while (true) {
+                int index = input.readInt();
+                int length = input.readInt();
+                if (index < 0 || index >= sensors.size() || length <= 0 || length > input.available()) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                input.readFully(payload);
+                if (input.readLong() != checksum(index, payload)) {
+                    break;
+                }
+                results.put(index, deserialize(payload));
+                validLength += 4 + 4 + length + 8;
+            }
+        } catch (EOFException e) {
+            // End of the journal, possibly mid-record
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            Log.w(TAG, "Ignoring unreadable journal entries: " + e.getMessage());
+        }
+        return new Checkpoint(results, validLength);
+    }
+
+    /**
+     * Starts journaling a run, replacing any earlier journal
+     */
+    public synchronized void begin(List<Sensor> sensors) throws IOException {
+        close();
+        openForAppend(false);
+        output.writeInt(MAGIC);
+        output.writeInt(sensors.size());
+        output.writeLong(computeSignature(sensors));
+        sync();
+    }
+
+    /**
+     * Continues journaling the run a checkpoint was loaded from, dropping any
+     * torn record at the end
+     */
+    public synchronized void resume(Checkpoint checkpoint) throws IOException {
+        close();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(checkpoint.validLength);
+        }
+        openForAppend(true);
+    }
+
+    /**
+     * Appends a completed result. The record is flushed immediately and
+     * fsynced together with the rest of its batch.
+     */
+    public synchronized void append(int index, TestResult result) throws IOException {
+        if (output == null) {
+            return;
+        }
+        byte[] payload = serialize(result);
+        output.writeInt(index);
+        output.writeInt(payload.length);
+        output.write(payload);
+        output.writeLong(checksum(index, payload));
+        output.flush();
+
+        unsyncedRecords++;
+        if (unsyncedRecords >= SYNC_BATCH_SIZE
+                || SystemClock.elapsedRealtime() - lastSyncTime >= SYNC_INTERVAL_MS) {
+            sync();
+        }
+    }
+
+    /**
+     * Syncs outstanding records and closes the file
+     */
+    public synchronized void close() {
+        if (output == null) {
+            return;
+        }
+        try {
+            sync();
+            output.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to close journal: " + e.getMessage());
+        }
+        output = null;
+        fileStream = null;
+    }
+
+    /**
+     * Deletes the journal once its run completed or was cancelled
+     */
+    public synchronized void discard() {
+        close();
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Failed to delete journal " + file.getAbsolutePath());
+        }
+    }
+
+    private void openForAppend(boolean append) throws IOException {
+        fileStream = new FileOutputStream(file, append);
+        output = new DataOutputStream(new BufferedOutputStream(fileStream));
+        unsyncedRecords = 0;
+        lastSyncTime = SystemClock.elapsedRealtime();
+    }
+
+    private void sync() throws IOException {
+        output.flush();
+        fileStream.getFD().sync();
+        unsyncedRecords = 0;
+        lastSyncTime = SystemClock.elapsedRealtime();
+    }
+
+    private static long computeSignature(List<Sensor> sensors) {
+        long signature = 17;
+        for (Sensor sensor : sensors) {
+            signature = signature * 31 + (sensor != null ? sensor.getType() : -1);
+            signature = signature * 31 + (sensor != null ? sensor.getName().hashCode() : 0);
+            signature = signature * 31 + (sensor != null ? sensor.getVendor().hashCode() : 0);
+        }
+        return signature;
+    }
+
+    private static long checksum(int index, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(new byte[]{(byte) (index >>> 24), (byte) (index >>> 16), (byte) (index >>> 8), (byte) index});
+        crc.update(payload);
+        return crc.getValue();
+    }
+
+    private static byte[] serialize(TestResult result) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+            objects.writeObject(result);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Results restored from the journal of an interrupted run
+     */
+    public static class Checkpoint {
+        private final Map<Integer, TestResult> results;
+        private final long validLength;
+
+        Checkpoint(Map<Integer, TestResult> results, long validLength) {
+            this.results = results;
+            this.validLength = validLength;
+        }
+
+        /**
+         * @return Restored results by sensor index
+         */
+        public Map<Integer, TestResult> getResults() {
+            return results;
+        }
+
+        public boolean isEmpty() {
+            return results.isEmpty();
+        }
+    }
+
+    private static TestResult deserialize(byte[] payload) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+            return (TestResult) objects.readObject();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.senon.widget;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.senon.utils.SampleRingBuffer;
+
+/**
+ * Draws the samples retained in a {@link SampleRingBuffer} as one rolling line
+ * per axis, scaled to the combined range of all axes.
+ *
+ * Drawing reuses a single line segment array that is only reallocated when a
+ * larger buffer is attached, so redrawing every frame while sensors stream
+ * does not allocate. The buffer must be written on the main thread.
+ */
+public class SparklineView extends View {
+
+    private static final int[] AXIS_COLORS = {0xFFE53935, 0xFF43A047, 0xFF1E88E5};
+    private static final int MAX_AXES = AXIS_COLORS.length;
+    private static final float STROKE_WIDTH_DP = 1.5f;
+
+    private final Paint[] axisPaints = new Paint[MAX_AXES];
+    private float[] lines = new float[0];
+    private SampleRingBuffer samples;
+
+    public SparklineView(Context context) {
+        this(context, null);
+    }
+
+    public SparklineView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        float strokeWidth = STROKE_WIDTH_DP * getResources().getDisplayMetrics().density;
+        for (int axis = 0; axis < MAX_AXES; axis++) {
+            Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setColor(AXIS_COLORS[axis]);
+            paint.setStrokeWidth(strokeWidth);
+            paint.setStyle(Paint.Style.STROKE);
+            axisPaints[axis] = paint;
+        }
+    }
+
+    /**
+     * Sets the buffer to draw and redraws
+     *
+     * @param samples The samples, or null to draw nothing
+     */
+    public void setSamples(@Nullable SampleRingBuffer samples) {
+        this.samples = samples;
+        if (samples != null && lines.length < samples.getCapacity() * 4) {
+            // Four floats per segment, one segment per pair of samples
+            lines = new float[samples.getCapacity() * 4];
+        }
+        invalidate();
+    }
+
+    /**
+     * Redraws after samples were added to the attached buffer
+     */
+    public void onSamplesChanged() {
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+        if (samples == null || samples.size() < 2) {
+            return;
+        }
+
+        int size = samples.size();
+        int axes = Math.min(samples.getAxisCount(), MAX_AXES);
+
+        // Common scale, so the relative magnitude of the axes is kept
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (int axis = 0; axis < axes; axis++) {
+            for (int i = 0; i < size; i++) {
+                float value = samples.get(i, axis);
+                if (value < min) min = value;
+                if (value > max) max = value;
+            }
+        }
+        if (!(max > min)) {
+            // Flat or non-finite signal: draw it through the middle
+            min -= 1f;
+            max += 1f;
+        }
+
+        float left = getPaddingLeft();
+        float top = getPaddingTop();
+        float width = getWidth() - left - getPaddingRight();
+        float height = getHeight() - top - getPaddingBottom();
+        float xStep = width / (samples.getCapacity() - 1);
+        float yScale = height / (max - min);
+        // Newest sample at the right edge
+        float xStart = left + width - (size - 1) * xStep;
+
+        for (int axis = 0; axis < axes; axis++) {
+            int count = 0;
+            float previousX = xStart;
+            float previousY = top + (max - samples.get(0, axis)) * yScale;
+            for (int i = 1; i < size; i++) {
+                float x = xStart + i * xStep;
+                float y = top + (max - samples.get(i, axis)) * yScale;
+                lines[count++] = previousX;
+                lines[count++] = previousY;
+                lines[count++] = x;
+                lines[count++] = y;
+                previousX = x;
+                previousY = y;
+            }
+            canvas.drawLines(lines, 0, count, axisPaints[axis]);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.senon.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs RingDirectReportParser against a synthetic direct channel ring.
+ */
+public class RingDirectReportParserTest {
+
+    private static final int RING_RECORDS = 4;
+
+    private ByteBuffer ring;
+    private RingDirectReportParser parser;
+    private List<Long> timestamps;
+    private List<Float> firstValues;
+    private DirectReportParser.SampleSink sink;
+    private long nextCounter;
+
+    @Before
+    public void setUp() {
+        ring = ByteBuffer.allocate(RING_RECORDS * DirectReportParser.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        parser = new RingDirectReportParser();
+        timestamps = new ArrayList<>();
+        firstValues = new ArrayList<>();
+        sink = (reportToken, sensorType, timestampNs, values) -> {
+            timestamps.add(timestampNs);
+            firstValues.add(values[0]);
+        };
+        nextCounter = 1;
+    }
+
+    private void writeRecord(long timestampNs, float value) {
+        int offset = (int) ((nextCounter - 1) % RING_RECORDS) * DirectReportParser.RECORD_SIZE;
+        ring.putInt(offset, DirectReportParser.RECORD_SIZE);
+        ring.putInt(offset + 4, 7);
+        ring.putInt(offset + 8, 1);
+        ring.putLong(offset + 16, timestampNs);
+        ring.putFloat(offset + 24, value);
+        ring.putInt(offset + 12, (int) nextCounter++);
+    }
+
+    @Test
+    public void emptyRing_deliversNothing() {
+        assertEquals(0, parser.poll(ring, sink));
+        assertEquals(0, parser.getDroppedCount());
+    }
+
+    @Test
+    public void newRecords_deliveredInOrderOnce() {
+        writeRecord(100, 1.5f);
+        writeRecord(200, 2.5f);
+
+        assertEquals(2, parser.poll(ring, sink));
+        assertEquals(0, parser.poll(ring, sink));
+        assertEquals(List.of(100L, 200L), timestamps);
+        assertEquals(List.of(1.5f, 2.5f), firstValues);
+    }
+
+    @Test
+    public void writerWraps_readerFollows() {
+        for (int i = 0; i < 3; i++) writeRecord(i, i);
+        assertEquals(3, parser.poll(ring, sink));
+
+        for (int i = 3; i < 6; i++) writeRecord(i, i);
+        assertEquals(3, parser.poll(ring, sink));
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L), timestamps);
+        assertEquals(0, parser.getDroppedCount());
+    }
+
+    @Test
+    public void writerLapsReader_countsDroppedRecords() {
+        for (int i = 0; i < RING_RECORDS + 2; i++) writeRecord(i, i);
+
+        // Records 0 and 1 were overwritten by 4 and 5; 2 to 5 are still readable
+        assertEquals(4, parser.poll(ring, sink));
+        assertEquals(2, parser.getDroppedCount());
+        assertEquals(List.of(2L, 3L, 4L, 5L), timestamps);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.senon.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that SensorSearchIndex narrowing while typing gives the same matches
+ * as evaluating each query from scratch.
+ */
+public class SensorSearchIndexTest {
+
+    private static final String[] DESCRIPTIONS = {
+            "BMI160 Accelerometer Bosch android.sensor.accelerometer MOTION",
+            "BMI160 Gyroscope Bosch android.sensor.gyroscope MOTION",
+            "BMI160 Gyroscope Uncalibrated Bosch android.sensor.gyroscope_uncalibrated MOTION",
+            "AK09918 Magnetometer AKM android.sensor.magnetic_field POSITION",
+            "TMD3702 Ambient Light Sensor AMS android.sensor.light ENVIRONMENT",
+            "Accelerometer Uncalibrated Bosch android.sensor.accelerometer_uncalibrated MOTION",
+            "Step Counter Google android.sensor.step_counter ACTIVITY",
+    };
+
+    private static boolean[] matchesOf(SensorSearchIndex index) {
+        boolean[] matches = new boolean[index.size()];
+        for (int i = 0; i < matches.length; i++) {
+            matches[i] = index.matches(i);
+        }
+        return matches;
+    }
+
+    /**
+     * Types the query one character at a time into one index and compares
+     * every step with a fresh index given the whole prefix
+     */
+    private static void assertTypingMatchesFullEvaluation(String query) {
+        SensorSearchIndex typed = new SensorSearchIndex(DESCRIPTIONS);
+        for (int length = 1; length <= query.length(); length++) {
+            String prefix = query.substring(0, length);
+            typed.setQuery(prefix);
+
+            SensorSearchIndex fresh = new SensorSearchIndex(DESCRIPTIONS);
+            fresh.setQuery(prefix);
+            for (int i = 0; i < DESCRIPTIONS.length; i++) {
+                assertEquals("\"" + prefix + "\" item " + i, fresh.matches(i), typed.matches(i));
+            }
+        }
+    }
+
+    private static boolean[] matchesFor(String query) {
+        SensorSearchIndex index = new SensorSearchIndex(DESCRIPTIONS);
+        index.setQuery(query);
+        return matchesOf(index);
+    }
+
+    @Test
+    public void prefixQuery_narrowingMatchesFullEvaluation() {
+        assertTypingMatchesFullEvaluation("gyroscope");
+        assertTypingMatchesFullEvaluation("bmi160");
+    }
+
+    @Test
+    public void fuzzyQuery_narrowingMatchesFullEvaluation() {
+        // Fuzzy matching starts at the third character and can add matches there
+        assertTypingMatchesFullEvaluation("accl");
+        assertTypingMatchesFullEvaluation("mgnt");
+    }
+
+    @Test
+    public void multiTermQuery_narrowingMatchesFullEvaluation() {
+        assertTypingMatchesFullEvaluation("gyro uncal");
+        assertTypingMatchesFullEvaluation("bosch accl unc");
+        assertTypingMatchesFullEvaluation("st cnt");
+    }
+
+    @Test
+    public void fuzzyQuery_findsSubsequenceOfToken() {
+        boolean[] matches = matchesFor("accl");
+        assertTrue(matches[0]);
+        assertTrue(matches[5]);
+        assertFalse(matches[1]);
+        assertFalse(matches[4]);
+    }
+
+    @Test
+    public void multiTermQuery_requiresEveryTerm() {
+        boolean[] matches = matchesFor("gyro uncal");
+        assertTrue(matches[2]);
+        assertFalse(matches[1]);
+        assertFalse(matches[5]);
+    }
+
+    @Test
+    public void deletingCharacters_widensAgain() {
+        SensorSearchIndex index = new SensorSearchIndex(DESCRIPTIONS);
+        index.setQuery("gyro uncal");
+        index.setQuery("gyro");
+        assertTrue(index.matches(1));
+        assertTrue(index.matches(2));
+
+        assertFalse(index.setQuery(" "));
+        for (int i = 0; i < DESCRIPTIONS.length; i++) {
+            assertTrue(index.matches(i));
+        }
+    }
+}
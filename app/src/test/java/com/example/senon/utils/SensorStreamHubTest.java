@@ -0,0 +1,87 @@
+package com.example.senon.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks how SensorStreamHub thins a shared fast stream for slower subscribers.
+ */
+public class SensorStreamHubTest {
+
+    private static final long MS = 1_000_000L;
+    // A recorder or GAME-rate test holding the sensor at 200 Hz
+    private static final long STREAM_PERIOD_NS = 5 * MS;
+    // Timestamps are time since boot, far from zero
+    private static final long START_NS = 123_456 * MS;
+
+    /**
+     * Feeds one stream event per stream period for the given time
+     *
+     * @return Timestamps the decimator let through
+     */
+    private static long[] deliver(SensorStreamHub.Decimator decimator, long startNs, long durationNs) {
+        long[] delivered = new long[(int) (durationNs / STREAM_PERIOD_NS)];
+        int count = 0;
+        for (long t = startNs; t < startNs + durationNs; t += STREAM_PERIOD_NS) {
+            if (decimator.accept(t, STREAM_PERIOD_NS)) {
+                delivered[count++] = t;
+            }
+        }
+        long[] result = new long[count];
+        System.arraycopy(delivered, 0, result, 0, count);
+        return result;
+    }
+
+    private static SensorStreamHub.Decimator decimatorFor(int periodUs) {
+        SensorStreamHub.Decimator decimator = new SensorStreamHub.Decimator();
+        decimator.setPeriod(SensorStreamHub.toPeriodUs(periodUs) * 1000L);
+        return decimator;
+    }
+
+    @Test
+    public void slowSubscriber_receivesFirstEventOfFastStream() {
+        SensorStreamHub.Decimator decimator = decimatorFor(1_000_000);
+
+        assertTrue(decimator.accept(START_NS, STREAM_PERIOD_NS));
+        assertFalse(decimator.accept(START_NS + STREAM_PERIOD_NS, STREAM_PERIOD_NS));
+    }
+
+    @Test
+    public void slowSubscriber_receivesItsOwnRateFromFastStream() {
+        // UI rate; the first stream event past 66.7 ms less the jitter allowance is 65 ms on
+        long[] delivered = deliver(decimatorFor(66_667), START_NS, 1000 * MS);
+
+        assertEquals(16, delivered.length);
+        assertEquals(START_NS, delivered[0]);
+        for (int i = 1; i < delivered.length; i++) {
+            long interval = delivered[i] - delivered[i - 1];
+            assertTrue("interval " + interval, interval >= 65 * MS && interval <= 70 * MS);
+        }
+    }
+
+    @Test
+    public void keepAliveSubscriber_receivesOneEventPerSecond() {
+        long[] delivered = deliver(decimatorFor(1_000_000), START_NS, 3000 * MS);
+
+        assertEquals(3, delivered.length);
+        assertEquals(START_NS + 1000 * MS, delivered[1]);
+    }
+
+    @Test
+    public void subscriberAtStreamRate_receivesEveryEvent() {
+        long[] delivered = deliver(decimatorFor(5000), START_NS, 100 * MS);
+
+        assertEquals(20, delivered.length);
+    }
+
+    @Test
+    public void rateChange_deliversNextEventAtOnce() {
+        SensorStreamHub.Decimator decimator = decimatorFor(1_000_000);
+        assertTrue(decimator.accept(START_NS, STREAM_PERIOD_NS));
+
+        decimator.setPeriod(66_667_000L);
+        assertTrue(decimator.accept(START_NS + STREAM_PERIOD_NS, STREAM_PERIOD_NS));
+        assertFalse(decimator.accept(START_NS + 2 * STREAM_PERIOD_NS, STREAM_PERIOD_NS));
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.senon.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the session file encoding and crash recovery of SessionRecorder.
+ */
+public class SessionRecorderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] varLong(long value) {
+        byte[] bytes = new byte[10];
+        int length = SessionRecorder.putVarLong(bytes, 0, value);
+        byte[] encoded = new byte[length];
+        System.arraycopy(bytes, 0, encoded, 0, length);
+        return encoded;
+    }
+
+    private File writeSession(short flags, long committedLength, long eventCount, int fileLength) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SessionRecorder.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0, SessionRecorder.MAGIC);
+        header.putShort(SessionRecorder.OFFSET_VERSION, SessionRecorder.VERSION);
+        header.putShort(SessionRecorder.OFFSET_FLAGS, flags);
+        header.putLong(SessionRecorder.OFFSET_COMMITTED_LENGTH, committedLength);
+        header.putLong(SessionRecorder.OFFSET_EVENT_COUNT, eventCount);
+
+        File file = folder.newFile("session" + SessionRecorder.FILE_EXTENSION);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.write(header.array());
+            // Records past the header, including a torn tail beyond the committed length
+            randomAccessFile.write(new byte[fileLength - SessionRecorder.HEADER_SIZE]);
+        }
+        return file;
+    }
+
+    private static short readFlags(File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            byte[] header = new byte[SessionRecorder.HEADER_SIZE];
+            randomAccessFile.readFully(header);
+            return ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getShort(SessionRecorder.OFFSET_FLAGS);
+        }
+    }
+
+    @Test
+    public void varLong_usesSevenBitGroupsLowFirst() {
+        assertArrayEquals(new byte[]{0}, varLong(0));
+        assertArrayEquals(new byte[]{127}, varLong(127));
+        assertArrayEquals(new byte[]{(byte) 0x80, 0x01}, varLong(128));
+        assertArrayEquals(new byte[]{(byte) 0xAC, 0x02}, varLong(300));
+        assertEquals(10, varLong(-1L).length);
+        assertEquals(0x01, varLong(-1L)[9]);
+    }
+
+    @Test
+    public void varint_isUnsigned() {
+        byte[] bytes = new byte[10];
+        assertEquals(5, SessionRecorder.putVarint(bytes, 0, -1));
+        assertEquals(0x0F, bytes[4]);
+    }
+
+    @Test
+    public void zigzag_mapsSmallMagnitudesToSmallValues() {
+        assertEquals(0, SessionRecorder.zigzag(0));
+        assertEquals(1, SessionRecorder.zigzag(-1));
+        assertEquals(2, SessionRecorder.zigzag(1));
+        assertEquals(3, SessionRecorder.zigzag(-2));
+        assertEquals(-2L, SessionRecorder.zigzag(Long.MAX_VALUE));
+        assertEquals(-1L, SessionRecorder.zigzag(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void recover_truncatesOpenSessionToCommittedLength() throws IOException {
+        File file = writeSession((short) 0, 200, 7, 1000);
+
+        assertEquals(7, SessionRecorder.recover(file));
+        assertEquals(200, file.length());
+        assertEquals(SessionRecorder.FLAG_CLOSED, readFlags(file));
+    }
+
+    @Test
+    public void recover_leavesClosedSessionAlone() throws IOException {
+        File file = writeSession(SessionRecorder.FLAG_CLOSED, 200, 7, 1000);
+
+        assertEquals(7, SessionRecorder.recover(file));
+        assertEquals(1000, file.length());
+        assertEquals(SessionRecorder.FLAG_CLOSED, readFlags(file));
+    }
+
+    @Test
+    public void recover_keepsHeaderWhenNothingWasCommitted() throws IOException {
+        File file = writeSession((short) 0, 0, 0, 500);
+
+        assertEquals(0, SessionRecorder.recover(file));
+        assertEquals(SessionRecorder.HEADER_SIZE, file.length());
+    }
+
+    @Test(expected = IOException.class)
+    public void recover_rejectsOtherFiles() throws IOException {
+        File file = folder.newFile("other" + SessionRecorder.FILE_EXTENSION);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.write(new byte[SessionRecorder.HEADER_SIZE]);
+        }
+        SessionRecorder.recover(file);
+    }
+}